@@ -14,18 +14,24 @@ import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
 import org.apache.commons.math3.stat.inference.TestUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.Connection;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Particles Swarm Optimization (PSO).
@@ -64,10 +70,14 @@ public class App
 
         if ( args.length > 0 && Files.exists( Paths.get( args[0] ) ) )
         {
-            Connection db = new DB().conectar();
             Properties config = carregarArquivoDeConfig( args[0] );
 
-            Pso pso = new Pso( db, config, RANDOM, FORMAT, K );
+            // conexões compartilhadas pelas avaliações simultâneas
+            final int numConexoes = Integer.valueOf( config.getProperty( "db.conexoes", "1" ) );
+            final int maxPreparadas = Integer.valueOf( config.getProperty( "db.consultas_preparadas", "16" ) );
+            PoolConexoes db = new DB().criarPool( numConexoes, maxPreparadas );
+
+            Pso pso = new Pso( db, config, FORMAT, K );
 
             Weka weka = new Weka( config );
 
@@ -86,22 +96,22 @@ public class App
             final Map<String, Map<String, List<Double>>> efetCls = new HashMap<>();
             final Map<String, Map<String, List<Double>>> acurCls = new HashMap<>();
 
+            // execuções independentes, cada uma com a sua semente
+            final List<Execucao> execucoes = executar( pso, weka, config );
+
             for ( int iter = 0; iter < EXECS; iter++ )
             {
-                System.out.printf( "\n\nExecução: %d\n\n", iter + 1 );
-
-                pso.carregar();
+                final Execucao execucao = execucoes.get( iter );
 
                 // valor médio global da efetividade e acurácia
-                final double[] resultado = pso.valorMedioGlobal();
+                final double[] resultado = execucao.pso.valorMedioGlobal();
                 efetPSO.add( resultado[0] );
                 acurPSO.add( resultado[1] );
 
                 // weka
-                weka.classificar( K, pso.getKPasta() );
-                final double[][] efetWeka = weka.efetividade();
-                final double[][] acurWeka = weka.acuracia();
-                final int numClasses = weka.numClasses();
+                final double[][] efetWeka = execucao.efetWeka;
+                final double[][] acurWeka = execucao.acurWeka;
+                final int numClasses = execucao.numClasses;
 
                 // valor médio da efetividade global (weka)
                 double medEfetJ48 = 0.0;
@@ -165,7 +175,7 @@ public class App
                     acurCls.get( "RBF" ).get( cl ).add( acurWeka[2][i] );
                 }
 
-                final Map<String, double[]> resultClasses = pso.valorMedioPorClasses();
+                final Map<String, double[]> resultClasses = execucao.pso.valorMedioPorClasses();
 
                 for ( Entry<String, double[]> item : resultClasses.entrySet() )
                 {
@@ -200,6 +210,9 @@ public class App
 
             // salvar acurácia global
             salvarExecsEmCSV( "acuracia", config, acurPSO, acurJ48, acurSMO, acurRBF );
+
+            pso.close();
+            db.close();
         }
         else
         {
@@ -208,6 +221,115 @@ public class App
         }
     }
 
+    /**
+     * Realiza as execuções do PSO e dos algoritmos do WEKA. As sementes de cada execução são geradas em ordem a
+     * partir do gerador {@link #RANDOM}, de modo que os resultados não dependem do número de execuções simultâneas
+     * (<code>threads.execucoes</code>). As saídas de execuções simultâneas são impressas na ordem das execuções.
+     *
+     * @param pso    PSO.
+     * @param weka   WEKA, com a tabela carregada.
+     * @param config Configurações de execução dos algoritmos.
+     * @return Resultados das execuções, na ordem das execuções.
+     */
+    private static List<Execucao> executar( final Pso pso, final Weka weka, final Properties config )
+    {
+        final long[] sementes = new long[EXECS];
+
+        for ( int iter = 0; iter < EXECS; iter++ )
+        {
+            sementes[iter] = RANDOM.nextLong();
+        }
+
+        final List<Execucao> execucoes = new ArrayList<>();
+
+        final int numThreads = Integer.valueOf( config.getProperty( "threads.execucoes", "1" ) );
+
+        if ( numThreads <= 1 )
+        {
+            for ( int iter = 0; iter < EXECS; iter++ )
+            {
+                execucoes.add( executar( pso, weka, iter, sementes[iter], System.out ) );
+            }
+
+            return execucoes;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+
+        try
+        {
+            final List<Future<Execucao>> tarefas = new ArrayList<>();
+            final List<ByteArrayOutputStream> saidas = new ArrayList<>();
+
+            for ( int iter = 0; iter < EXECS; iter++ )
+            {
+                final int numExec = iter;
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                final PrintStream saida = new PrintStream( buffer, true );
+
+                saidas.add( buffer );
+                tarefas.add( executor.submit( new Callable<Execucao>()
+                {
+                    @Override
+                    public Execucao call()
+                    {
+                        return executar( pso, weka, numExec, sementes[numExec], saida );
+                    }
+                } ) );
+            }
+
+            for ( int iter = 0; iter < EXECS; iter++ )
+            {
+                execucoes.add( tarefas.get( iter ).get() );
+                System.out.print( saidas.get( iter ).toString() );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Execuções interrompidas.", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new RuntimeException( "Erro nas execuções simultâneas.", e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return execucoes;
+    }
+
+    /**
+     * Realiza uma execução do PSO e dos algoritmos do WEKA sobre as mesmas k-pastas.
+     *
+     * @param pso     PSO.
+     * @param weka    WEKA, com a tabela carregada.
+     * @param iter    Índice da execução.
+     * @param semente Semente do gerador de números aleatórios da execução.
+     * @param saida   Saída dos resultados.
+     * @return Resultado da execução.
+     */
+    private static Execucao executar( Pso pso, Weka weka, int iter, long semente, PrintStream saida )
+    {
+        saida.printf( "\n\nExecução: %d\n\n", iter + 1 );
+
+        final Execucao execucao = new Execucao();
+
+        execucao.pso = pso.carregar( semente, saida );
+
+        // weka
+        final Weka wekaExecucao = new Weka( weka );
+        wekaExecucao.classificar( K, execucao.pso.getKPasta() );
+
+        execucao.efetWeka = wekaExecucao.efetividade();
+        execucao.acurWeka = wekaExecucao.acuracia();
+        execucao.numClasses = wekaExecucao.numClasses();
+
+        return execucao;
+    }
+
     /**
      * Carrega arquivo de configurações.
      *
@@ -762,4 +884,19 @@ public class App
             System.out.println();
         }
     }
+
+    /**
+     * Resultado de uma execução do PSO e dos algoritmos do WEKA.
+     */
+    private static class Execucao
+    {
+
+        private ResultadoExecucao pso;
+
+        private double[][] efetWeka;
+
+        private double[][] acurWeka;
+
+        private int numClasses;
+    }
 }
@@ -0,0 +1,363 @@
+package com.github.tsprates.pso;
+
+import org.apache.commons.math3.ml.distance.EuclideanDistance;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Arquivo de partículas não dominadas para os dois objetivos do problema (complexidade e efetividade).
+ * <p>
+ * As partículas são mantidas ordenadas pela efetividade (e, em caso de empate, pela complexidade), a mesma ordem de
+ * {@link Particula#compareTo(Particula)}. Em uma fronteira não dominada a complexidade é então estritamente
+ * decrescente, de modo que a única partícula capaz de dominar uma nova partícula é a sua sucessora na ordem, e as
+ * partículas dominadas pela nova partícula são as suas antecessoras imediatas. A verificação de dominância e a
+ * inserção são realizadas em O(log n), além da remoção das partículas dominadas.
+ * <p>
+ * O arquivo é limitado: quando o limite é excedido, a partícula de menor distância de aglomeração (crowding distance)
+ * é removida, preservando os extremos da fronteira. Como ambos os objetivos são limitados ao intervalo [0, 1], a
+ * distância dispensa normalização e depende apenas das partículas vizinhas, sendo mantida de forma incremental.
+ * <p>
+ * A busca da partícula mais próxima (líder) parte da posição da partícula de referência na ordem de efetividade e
+ * avança nos dois sentidos enquanto a diferença de efetividade não supera a menor distância encontrada.
+ *
+ * @author thiago
+ * @see FronteiraPareto#atualizarParticulasNaoDominadas(java.util.Collection, Particula)
+ */
+public class ArquivoPareto
+                extends AbstractCollection<Particula>
+                implements ArquivoParetoLeitura
+{
+
+    /**
+     * Limite padrão de partículas não dominadas.
+     */
+    public final static int LIMITE_PADRAO = 100;
+
+    private static final Comparator<Particula> ORDEM = new Comparator<Particula>()
+    {
+        @Override
+        public int compare( Particula a, Particula b )
+        {
+            final double[] afit = a.fitness();
+            final double[] bfit = b.fitness();
+
+            final int cmp = Double.compare( afit[1], bfit[1] );
+
+            return cmp != 0 ? cmp : Double.compare( afit[0], bfit[0] );
+        }
+    };
+
+    private static final EuclideanDistance DIST_EUCL = new EuclideanDistance();
+
+    /**
+     * Folga na poda da busca pela partícula mais próxima, para que arredondamentos no cálculo da distância não
+     * descartem partículas empatadas.
+     */
+    private static final double FOLGA = 1e-9;
+
+    private final int limite;
+
+    private final TreeSet<Particula> particulas = new TreeSet<>( ORDEM );
+
+    private final Map<Particula, Double> distancias = new IdentityHashMap<>();
+
+    private final TreeSet<Particula> porDistancia = new TreeSet<>( new Comparator<Particula>()
+    {
+        @Override
+        public int compare( Particula a, Particula b )
+        {
+            final int cmp = Double.compare( distancias.get( a ), distancias.get( b ) );
+
+            return cmp != 0 ? cmp : ORDEM.compare( a, b );
+        }
+    } );
+
+    /**
+     * Construtor de um arquivo com o limite padrão.
+     *
+     * @see #LIMITE_PADRAO
+     */
+    public ArquivoPareto()
+    {
+        this( LIMITE_PADRAO );
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param limite Número máximo de partículas não dominadas.
+     */
+    public ArquivoPareto( int limite )
+    {
+        if ( limite < 1 )
+        {
+            throw new RuntimeException( "Limite do arquivo de partículas não dominadas inválido: " + limite );
+        }
+
+        this.limite = limite;
+    }
+
+    /**
+     * Construtor de cópia. As partículas (cópias inseridas pelo arquivo) são compartilhadas.
+     *
+     * @param outro Arquivo de partículas não dominadas.
+     */
+    ArquivoPareto( ArquivoPareto outro )
+    {
+        this.limite = outro.limite;
+
+        particulas.addAll( outro.particulas );
+        distancias.putAll( outro.distancias );
+        porDistancia.addAll( outro.porDistancia );
+    }
+
+    /**
+     * Adiciona a partícula caso não seja dominada, removendo as partículas dominadas por ela. Caso o limite seja
+     * excedido, as partículas de menor distância de aglomeração são removidas.
+     *
+     * @param particula Partícula.
+     * @return Se o resultado é igual a 1, a partícula é incluída (uma cópia), removendo as partículas dominadas. Se o
+     * resultado é igual a 0, já existe partícula com o mesmo fitness e não há alteração. Se o resultado é
+     * igual a -1, a partícula é dominada e não há alteração.
+     * @see FronteiraPareto#atualizarParticulasNaoDominadas(java.util.Collection, Particula)
+     */
+    public int atualizar( Particula particula )
+    {
+        final int verificacao = verificar( particula );
+
+        if ( verificacao != 1 )
+        {
+            return verificacao;
+        }
+
+        final double[] pfit = particula.fitness();
+
+        // antecessoras dominadas: efetividade menor ou igual e complexidade menor ou igual
+        final List<Particula> dominadas = new ArrayList<>();
+
+        for ( Particula antecessora : particulas.headSet( particula, false ).descendingSet() )
+        {
+            if ( antecessora.fitness()[0] > pfit[0] )
+            {
+                break;
+            }
+
+            dominadas.add( antecessora );
+        }
+
+        for ( Particula dominada : dominadas )
+        {
+            remover( dominada );
+        }
+
+        inserir( particula.clonar() );
+
+        while ( particulas.size() > limite )
+        {
+            remover( porDistancia.first() );
+        }
+
+        return 1;
+    }
+
+    /**
+     * Verifica, sem alterar o arquivo, se a partícula seria incluída.
+     *
+     * @param particula Partícula.
+     * @return O mesmo resultado de {@link #atualizar(Particula)}.
+     */
+    int verificar( Particula particula )
+    {
+        final double[] pfit = particula.fitness();
+
+        // sucessora: menor efetividade maior ou igual, sendo a de maior complexidade entre elas
+        final Particula sucessora = particulas.ceiling( particula );
+
+        if ( sucessora != null )
+        {
+            final double[] sfit = sucessora.fitness();
+
+            if ( sfit[0] >= pfit[0] && sfit[1] >= pfit[1] )
+            {
+                return sfit[0] == pfit[0] && sfit[1] == pfit[1] ? 0 : -1;
+            }
+        }
+
+        return 1;
+    }
+
+    /**
+     * Insere a partícula e atualiza a distância de aglomeração das vizinhas.
+     *
+     * @param p Partícula.
+     */
+    private void inserir( Particula p )
+    {
+        particulas.add( p );
+
+        atualizarDistancia( p );
+        atualizarDistancia( particulas.lower( p ) );
+        atualizarDistancia( particulas.higher( p ) );
+    }
+
+    /**
+     * Remove a partícula e atualiza a distância de aglomeração das vizinhas.
+     *
+     * @param p Partícula.
+     */
+    private void remover( Particula p )
+    {
+        final Particula anterior = particulas.lower( p );
+        final Particula posterior = particulas.higher( p );
+
+        porDistancia.remove( p );
+        distancias.remove( p );
+        particulas.remove( p );
+
+        atualizarDistancia( anterior );
+        atualizarDistancia( posterior );
+    }
+
+    /**
+     * Recalcula a distância de aglomeração de uma partícula a partir das suas vizinhas na fronteira. As partículas
+     * dos extremos possuem distância infinita.
+     *
+     * @param p Partícula ou <code>null</code>.
+     */
+    private void atualizarDistancia( Particula p )
+    {
+        if ( p == null )
+        {
+            return;
+        }
+
+        if ( distancias.containsKey( p ) )
+        {
+            porDistancia.remove( p );
+        }
+
+        final Particula anterior = particulas.lower( p );
+        final Particula posterior = particulas.higher( p );
+
+        double distancia = Double.POSITIVE_INFINITY;
+
+        if ( anterior != null && posterior != null )
+        {
+            final double[] afit = anterior.fitness();
+            final double[] pfit = posterior.fitness();
+
+            distancia = ( afit[0] - pfit[0] ) + ( pfit[1] - afit[1] );
+        }
+
+        distancias.put( p, distancia );
+        porDistancia.add( p );
+    }
+
+    /**
+     * Retorna a partícula mais próxima por meio da distância Euclidiana no espaço de objetivos. Em caso de empate, é
+     * escolhida a primeira na ordem do arquivo, assim como em
+     * {@link Distancia#retornarParticulaMaisProxima(java.util.List, Particula)}.
+     *
+     * @param p Partícula.
+     * @return Partícula mais próxima.
+     */
+    @Override
+    public Particula maisProxima( Particula p )
+    {
+        if ( particulas.isEmpty() )
+        {
+            throw new NoSuchElementException( "Arquivo de partículas não dominadas vazio." );
+        }
+
+        final double[] pfit = p.fitness();
+
+        Particula maisProxima = null;
+        double menorDistancia = Double.POSITIVE_INFINITY;
+
+        // partículas de efetividade maior ou igual (navegação sem criar visões do conjunto)
+        for ( Particula q = particulas.ceiling( p ); q != null; q = particulas.higher( q ) )
+        {
+            final double[] qfit = q.fitness();
+
+            if ( qfit[1] - pfit[1] > menorDistancia + FOLGA )
+            {
+                break;
+            }
+
+            final double d = DIST_EUCL.compute( qfit, pfit );
+
+            if ( d < menorDistancia || ( d == menorDistancia && ORDEM.compare( q, maisProxima ) < 0 ) )
+            {
+                maisProxima = q;
+                menorDistancia = d;
+            }
+        }
+
+        // partículas de efetividade menor
+        for ( Particula q = particulas.lower( p ); q != null; q = particulas.lower( q ) )
+        {
+            final double[] qfit = q.fitness();
+
+            if ( pfit[1] - qfit[1] > menorDistancia + FOLGA )
+            {
+                break;
+            }
+
+            final double d = DIST_EUCL.compute( qfit, pfit );
+
+            if ( d < menorDistancia || ( d == menorDistancia && ORDEM.compare( q, maisProxima ) < 0 ) )
+            {
+                maisProxima = q;
+                menorDistancia = d;
+            }
+        }
+
+        // fitness indefinido (NaN): assim como na busca linear, retorna a primeira partícula
+        return maisProxima != null ? maisProxima : particulas.first();
+    }
+
+    /**
+     * Retorna o limite de partículas do arquivo.
+     *
+     * @return Número máximo de partículas.
+     */
+    public int limite()
+    {
+        return limite;
+    }
+
+    @Override
+    public boolean contains( Object o )
+    {
+        return o instanceof Particula && particulas.contains( o );
+    }
+
+    @Override
+    public Iterator<Particula> iterator()
+    {
+        return Collections.unmodifiableSet( particulas ).iterator();
+    }
+
+    @Override
+    public int size()
+    {
+        return particulas.size();
+    }
+
+    @Override
+    public void clear()
+    {
+        porDistancia.clear();
+        distancias.clear();
+        particulas.clear();
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.tsprates.pso;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Arquivo de partículas não dominadas compartilhado entre threads, sem bloqueios. O estado é um
+ * {@link ArquivoPareto} imutável após a publicação (instantâneo): as leituras (líder mais próximo, crossover, busca
+ * local, iteração) utilizam o instantâneo atual e nunca bloqueiam. Cada atualização copia o instantâneo, aplica a
+ * alteração na cópia e a publica por compare-and-set; em caso de conflito com outra atualização, a operação é
+ * repetida sobre o novo instantâneo.
+ * <p>
+ * Partículas dominadas ou repetidas são descartadas com uma verificação no instantâneo atual, sem cópia, de modo que
+ * apenas as inclusões pagam o custo da cópia (proporcional ao limite do arquivo).
+ *
+ * @author thiago
+ * @see ArquivoPareto
+ */
+public class ArquivoParetoConcorrente
+                extends AbstractCollection<Particula>
+                implements ArquivoParetoLeitura
+{
+
+    private final int limite;
+
+    private final AtomicReference<ArquivoPareto> atual;
+
+    /**
+     * Construtor.
+     *
+     * @param limite Número máximo de partículas não dominadas.
+     */
+    public ArquivoParetoConcorrente( int limite )
+    {
+        this.limite = limite;
+        this.atual = new AtomicReference<>( new ArquivoPareto( limite ) );
+    }
+
+    /**
+     * Retorna o instantâneo atual do arquivo, somente para leitura: as atualizações publicam novos instantâneos e
+     * nunca alteram os já publicados.
+     *
+     * @return Arquivo de partículas não dominadas.
+     */
+    public ArquivoParetoLeitura instantaneo()
+    {
+        return atual.get();
+    }
+
+    /**
+     * Adiciona a partícula caso não seja dominada, publicando um novo instantâneo.
+     *
+     * @param particula Partícula.
+     * @return O mesmo resultado de {@link ArquivoPareto#atualizar(Particula)}.
+     */
+    public int atualizar( Particula particula )
+    {
+        while ( true )
+        {
+            final ArquivoPareto anterior = atual.get();
+            final int verificacao = anterior.verificar( particula );
+
+            if ( verificacao != 1 )
+            {
+                return verificacao;
+            }
+
+            final ArquivoPareto novo = new ArquivoPareto( anterior );
+            novo.atualizar( particula );
+
+            if ( atual.compareAndSet( anterior, novo ) )
+            {
+                return 1;
+            }
+        }
+    }
+
+    /**
+     * Retorna a partícula mais próxima no instantâneo atual.
+     *
+     * @param p Partícula.
+     * @return Partícula mais próxima.
+     * @see ArquivoPareto#maisProxima(Particula)
+     */
+    @Override
+    public Particula maisProxima( Particula p )
+    {
+        return atual.get().maisProxima( p );
+    }
+
+    @Override
+    public boolean contains( Object o )
+    {
+        return atual.get().contains( o );
+    }
+
+    @Override
+    public Iterator<Particula> iterator()
+    {
+        return atual.get().iterator();
+    }
+
+    @Override
+    public int size()
+    {
+        return atual.get().size();
+    }
+
+    @Override
+    public void clear()
+    {
+        atual.set( new ArquivoPareto( limite ) );
+    }
+}
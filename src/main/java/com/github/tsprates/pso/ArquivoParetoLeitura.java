@@ -0,0 +1,38 @@
+package com.github.tsprates.pso;
+
+/**
+ * Visão somente leitura de um arquivo de partículas não dominadas. Os operadores de movimento e a busca local
+ * consultam o repositório gbest por meio desta interface, de modo que não podem alterar um instantâneo publicado.
+ *
+ * @author thiago
+ * @see ArquivoPareto
+ * @see ArquivoParetoConcorrente#instantaneo()
+ */
+public interface ArquivoParetoLeitura
+                extends Iterable<Particula>
+{
+
+    /**
+     * Retorna a partícula mais próxima no espaço de objetivos.
+     *
+     * @param p Partícula.
+     * @return Partícula mais próxima.
+     * @see ArquivoPareto#maisProxima(Particula)
+     */
+    Particula maisProxima( Particula p );
+
+    /**
+     * Verifica se a partícula pertence ao arquivo.
+     *
+     * @param o Partícula.
+     * @return Verdadeiro se a partícula pertence ao arquivo.
+     */
+    boolean contains( Object o );
+
+    /**
+     * Retorna o número de partículas do arquivo.
+     *
+     * @return Número de partículas.
+     */
+    int size();
+}
@@ -0,0 +1,373 @@
+package com.github.tsprates.pso;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache LRU de mapas de bits com limite de memória, indexado por condições (<code>long</code>). Mantém contadores de
+ * acertos e falhas.
+ * <p>
+ * O cache é dividido em segmentos independentes, escolhidos pela impressão digital da condição, de modo que avaliações
+ * simultâneas (de pastas ou threads distintas) raramente disputam o mesmo bloqueio. Cada segmento é uma tabela de
+ * endereçamento aberto (sondagem linear) sobre arrays de tipos primitivos, com uma lista duplamente encadeada de
+ * índices na ordem de acesso; o limite de entradas e a remoção da menos usada recentemente valem por segmento.
+ *
+ * @author thiago
+ * @see Condicao#impressao(long)
+ */
+public class CacheBits
+{
+
+    private static final int MAX_SEGMENTOS = 16;
+
+    private final Segmento[] segmentos;
+
+    private final int capacidade;
+
+    private final LongAdder acertos = new LongAdder();
+
+    private final LongAdder falhas = new LongAdder();
+
+    /**
+     * Construtor.
+     *
+     * @param memoriaMax   Memória máxima ocupada pelos mapas de bits, em bytes.
+     * @param palavrasBits Número de palavras (long) de cada mapa de bits.
+     */
+    public CacheBits( long memoriaMax, int palavrasBits )
+    {
+        final int entradas = (int) Math.max( 1, Math.min( Integer.MAX_VALUE, memoriaMax / ( 8L * palavrasBits ) ) );
+
+        // potência de dois, com ao menos uma entrada por segmento
+        final int numSegmentos = Math.min( MAX_SEGMENTOS, Integer.highestOneBit( entradas ) );
+
+        this.segmentos = new Segmento[numSegmentos];
+        this.capacidade = entradas;
+
+        for ( int i = 0; i < numSegmentos; i++ )
+        {
+            // o resto da divisão é distribuído entre os primeiros segmentos
+            segmentos[i] = new Segmento( entradas / numSegmentos + ( i < entradas % numSegmentos ? 1 : 0 ) );
+        }
+    }
+
+    /**
+     * Recupera o mapa de bits da condição, contabilizando acerto ou falha.
+     *
+     * @param chave Condição.
+     * @return Mapa de bits ou <code>null</code> se não estiver no cache.
+     */
+    public long[] get( long chave )
+    {
+        final long h = Condicao.impressao( chave );
+        final long[] bits = segmento( h ).get( chave, (int) h );
+
+        if ( bits == null )
+        {
+            falhas.increment();
+        }
+        else
+        {
+            acertos.increment();
+        }
+
+        return bits;
+    }
+
+    /**
+     * Armazena o mapa de bits da condição, removendo o menos usado recentemente do segmento caso o limite seja
+     * atingido.
+     *
+     * @param chave Condição.
+     * @param bits  Mapa de bits.
+     */
+    public void put( long chave, long[] bits )
+    {
+        final long h = Condicao.impressao( chave );
+        segmento( h ).put( chave, (int) h, bits );
+    }
+
+    private Segmento segmento( long h )
+    {
+        // bits altos escolhem o segmento; os baixos, a posição na tabela
+        return segmentos[(int) ( h >>> 32 ) & ( segmentos.length - 1 )];
+    }
+
+    /**
+     * Retorna o número de acertos.
+     *
+     * @return Número de acertos.
+     */
+    public long acertos()
+    {
+        return acertos.sum();
+    }
+
+    /**
+     * Retorna o número de falhas.
+     *
+     * @return Número de falhas.
+     */
+    public long falhas()
+    {
+        return falhas.sum();
+    }
+
+    /**
+     * Retorna o número de entradas armazenadas.
+     *
+     * @return Número de entradas.
+     */
+    public int size()
+    {
+        int total = 0;
+
+        for ( Segmento s : segmentos )
+        {
+            total += s.size();
+        }
+
+        return total;
+    }
+
+    /**
+     * Retorna a capacidade máxima de entradas.
+     *
+     * @return Capacidade.
+     */
+    public int capacidade()
+    {
+        return capacidade;
+    }
+
+    @Override
+    public String toString()
+    {
+        final long a = acertos.sum();
+        final long f = falhas.sum();
+        final long total = a + f;
+        final double taxa = total == 0 ? 0.0 : 100.0 * a / total;
+
+        return String.format( Locale.ROOT, "acertos=%d, falhas=%d, taxa=%.2f%%, entradas=%d/%d", a, f, taxa, size(),
+                              capacidade );
+    }
+
+    /**
+     * Segmento do cache. As entradas ocupam as posições de <code>chaves</code>/<code>valores</code>; a tabela guarda a
+     * posição da entrada mais um (zero indica posição vazia). Os arrays crescem sob demanda até a capacidade.
+     */
+    private static final class Segmento
+    {
+
+        private static final int TAMANHO_INICIAL = 16;
+
+        private final int capacidade;
+
+        private long[] chaves = new long[0];
+
+        private long[][] valores = new long[0][];
+
+        private int[] anterior = new int[0];
+
+        private int[] proxima = new int[0];
+
+        private int[] tabela = new int[0];
+
+        private int size = 0;
+
+        // mais e menos usada recentemente
+        private int primeira = -1;
+
+        private int ultima = -1;
+
+        Segmento( int capacidade )
+        {
+            this.capacidade = capacidade;
+        }
+
+        synchronized int size()
+        {
+            return size;
+        }
+
+        synchronized long[] get( long chave, int h )
+        {
+            final int e = buscar( chave, h );
+
+            if ( e < 0 )
+            {
+                return null;
+            }
+
+            moverParaInicio( e );
+
+            return valores[e];
+        }
+
+        synchronized void put( long chave, int h, long[] bits )
+        {
+            int e = buscar( chave, h );
+
+            if ( e >= 0 )
+            {
+                valores[e] = bits;
+                moverParaInicio( e );
+                return;
+            }
+
+            if ( size < capacidade )
+            {
+                if ( size == chaves.length )
+                {
+                    crescer();
+                }
+
+                e = size;
+                size += 1;
+            }
+            else
+            {
+                // reaproveita a posição da menos usada recentemente
+                e = ultima;
+                removerDaTabela( e );
+                desencadear( e );
+            }
+
+            chaves[e] = chave;
+            valores[e] = bits;
+
+            inserirNaTabela( e, h );
+            encadearNoInicio( e );
+        }
+
+        private int buscar( long chave, int h )
+        {
+            if ( size == 0 )
+            {
+                return -1;
+            }
+
+            final int mascara = tabela.length - 1;
+
+            for ( int i = h & mascara; tabela[i] != 0; i = ( i + 1 ) & mascara )
+            {
+                final int e = tabela[i] - 1;
+
+                if ( chaves[e] == chave )
+                {
+                    return e;
+                }
+            }
+
+            return -1;
+        }
+
+        private void inserirNaTabela( int e, int h )
+        {
+            final int mascara = tabela.length - 1;
+            int i = h & mascara;
+
+            while ( tabela[i] != 0 )
+            {
+                i = ( i + 1 ) & mascara;
+            }
+
+            tabela[i] = e + 1;
+        }
+
+        private void removerDaTabela( int e )
+        {
+            final int mascara = tabela.length - 1;
+            int i = (int) Condicao.impressao( chaves[e] ) & mascara;
+
+            while ( tabela[i] != e + 1 )
+            {
+                i = ( i + 1 ) & mascara;
+            }
+
+            // deslocamento para trás: mantém contíguas as sequências de sondagem, sem marcas de remoção
+            for ( int j = ( i + 1 ) & mascara; tabela[j] != 0; j = ( j + 1 ) & mascara )
+            {
+                final int ideal = (int) Condicao.impressao( chaves[tabela[j] - 1] ) & mascara;
+
+                if ( ( ( j - ideal ) & mascara ) >= ( ( j - i ) & mascara ) )
+                {
+                    tabela[i] = tabela[j];
+                    i = j;
+                }
+            }
+
+            tabela[i] = 0;
+        }
+
+        private void crescer()
+        {
+            final int tamanho = (int) Math.min( capacidade, Math.max( TAMANHO_INICIAL, 2L * chaves.length ) );
+
+            chaves = Arrays.copyOf( chaves, tamanho );
+            valores = Arrays.copyOf( valores, tamanho );
+            anterior = Arrays.copyOf( anterior, tamanho );
+            proxima = Arrays.copyOf( proxima, tamanho );
+
+            // fator de carga máximo de 1/2
+            tabela = new int[Integer.highestOneBit( tamanho ) << 2];
+
+            for ( int e = 0; e < size; e++ )
+            {
+                inserirNaTabela( e, (int) Condicao.impressao( chaves[e] ) );
+            }
+        }
+
+        private void moverParaInicio( int e )
+        {
+            if ( e != primeira )
+            {
+                desencadear( e );
+                encadearNoInicio( e );
+            }
+        }
+
+        private void desencadear( int e )
+        {
+            final int a = anterior[e];
+            final int p = proxima[e];
+
+            if ( a < 0 )
+            {
+                primeira = p;
+            }
+            else
+            {
+                proxima[a] = p;
+            }
+
+            if ( p < 0 )
+            {
+                ultima = a;
+            }
+            else
+            {
+                anterior[p] = a;
+            }
+        }
+
+        private void encadearNoInicio( int e )
+        {
+            anterior[e] = -1;
+            proxima[e] = primeira;
+
+            if ( primeira >= 0 )
+            {
+                anterior[primeira] = e;
+            }
+
+            primeira = e;
+
+            if ( ultima < 0 )
+            {
+                ultima = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.tsprates.pso;
+
+/**
+ * Chave de mapas indexados por regra, qualificada por um contexto (por exemplo, k-pasta e fase) e pela classe. A
+ * regra é identificada pela sua impressão digital de 64 bits, sem gerar a cláusula WHERE nem copiar as condições.
+ *
+ * @author thiago
+ * @see Particula#impressao()
+ */
+final class ChaveRegra
+{
+
+    private final int contexto;
+
+    private final String classe;
+
+    private final long impressao;
+
+    /**
+     * Construtor.
+     *
+     * @param contexto  Contexto da regra.
+     * @param classe    Classe da regra ou <code>null</code>.
+     * @param impressao Impressão digital da regra.
+     */
+    ChaveRegra( int contexto, String classe, long impressao )
+    {
+        this.contexto = contexto;
+        this.classe = classe;
+        this.impressao = impressao;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int h = 31 * contexto + ( classe == null ? 0 : classe.hashCode() );
+        return 31 * h + (int) ( impressao ^ ( impressao >>> 32 ) );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+
+        if ( !( obj instanceof ChaveRegra ) )
+        {
+            return false;
+        }
+
+        final ChaveRegra outra = (ChaveRegra) obj;
+
+        return impressao == outra.impressao && contexto == outra.contexto && ( classe == null ? outra.classe == null
+                        : classe.equals( outra.classe ) );
+    }
+}
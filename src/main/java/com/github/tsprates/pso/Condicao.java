@@ -0,0 +1,305 @@
+package com.github.tsprates.pso;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.github.tsprates.pso.Formatador.formatarCondicaoWhere;
+import static com.github.tsprates.pso.Formatador.formatarValorNumericoWhere;
+
+/**
+ * Condições de uma regra (cláusula WHERE) codificadas em um <code>long</code>.
+ * <p>
+ * Cada condição contém o índice da coluna (16 bits), o código do operador (3 bits), o tipo do termo à direita (1 bit)
+ * e o termo à direita (43 bits): o índice de outra coluna ou o valor numérico em milésimos, a mesma precisão de
+ * três casas decimais da cláusula WHERE. O valor é armazenado com deslocamento, de modo que a ordem natural dos
+ * códigos ordena as condições por coluna, operador e valor. O texto SQL só é gerado quando necessário.
+ *
+ * @author thiago
+ */
+public final class Condicao
+{
+
+    public static final int MAIOR = 0;
+
+    public static final int MAIOR_IGUAL = 1;
+
+    public static final int MENOR = 2;
+
+    public static final int MENOR_IGUAL = 3;
+
+    public static final int DIFERENTE = 4;
+
+    public static final int IGUAL = 5;
+
+    private static final String[] OPERADORES = { ">", ">=", "<", "<=", "!=", "=" };
+
+    private static final int POS_COLUNA = 47;
+
+    private static final int POS_OPERADOR = 44;
+
+    private static final long BIT_COLUNA = 1L << 43;
+
+    private static final long MASCARA_TERMO = BIT_COLUNA - 1;
+
+    private static final long MASCARA_OPERADOR = 7L << POS_OPERADOR;
+
+    private static final long DESLOCAMENTO = 1L << 42;
+
+    /**
+     * Maior valor absoluto, em milésimos, representável em uma condição.
+     */
+    public static final long MAX_MILESIMOS = DESLOCAMENTO - 1;
+
+    private Condicao()
+    {
+    }
+
+    /**
+     * Cria uma condição entre uma coluna e um valor numérico.
+     *
+     * @param coluna   Índice da coluna.
+     * @param operador Código do operador.
+     * @param valor    Valor numérico, arredondado para três casas decimais.
+     * @return Condição codificada.
+     */
+    public static long criar( int coluna, int operador, double valor )
+    {
+        return ( (long) coluna << POS_COLUNA ) | ( (long) operador << POS_OPERADOR ) | ( milesimos( valor )
+                        + DESLOCAMENTO );
+    }
+
+    /**
+     * Cria uma condição entre duas colunas.
+     *
+     * @param coluna      Índice da coluna.
+     * @param operador    Código do operador.
+     * @param outraColuna Índice da outra coluna.
+     * @return Condição codificada.
+     */
+    public static long criarEntreColunas( int coluna, int operador, int outraColuna )
+    {
+        return ( (long) coluna << POS_COLUNA ) | ( (long) operador << POS_OPERADOR ) | BIT_COLUNA | outraColuna;
+    }
+
+    /**
+     * Retorna o índice da coluna da condição.
+     *
+     * @param cond Condição.
+     * @return Índice da coluna.
+     */
+    public static int coluna( long cond )
+    {
+        return (int) ( cond >>> POS_COLUNA );
+    }
+
+    /**
+     * Retorna o código do operador da condição.
+     *
+     * @param cond Condição.
+     * @return Código do operador.
+     */
+    public static int operador( long cond )
+    {
+        return (int) ( ( cond & MASCARA_OPERADOR ) >>> POS_OPERADOR );
+    }
+
+    /**
+     * Verifica se a condição compara duas colunas.
+     *
+     * @param cond Condição.
+     * @return Verdadeiro se o termo à direita é outra coluna; falso se é um valor numérico.
+     */
+    public static boolean entreColunas( long cond )
+    {
+        return ( cond & BIT_COLUNA ) != 0;
+    }
+
+    /**
+     * Retorna o valor numérico da condição.
+     *
+     * @param cond Condição entre coluna e valor.
+     * @return Valor numérico.
+     */
+    public static double valor( long cond )
+    {
+        return ( ( cond & MASCARA_TERMO ) - DESLOCAMENTO ) / 1000.0;
+    }
+
+    /**
+     * Retorna o índice da outra coluna da condição.
+     *
+     * @param cond Condição entre colunas.
+     * @return Índice da outra coluna.
+     */
+    public static int outraColuna( long cond )
+    {
+        return (int) ( cond & MASCARA_TERMO );
+    }
+
+    /**
+     * Retorna a condição com outro operador.
+     *
+     * @param cond     Condição.
+     * @param operador Código do novo operador.
+     * @return Condição codificada.
+     */
+    public static long comOperador( long cond, int operador )
+    {
+        return ( cond & ~MASCARA_OPERADOR ) | ( (long) operador << POS_OPERADOR );
+    }
+
+    /**
+     * Retorna a condição com outro valor numérico.
+     *
+     * @param cond  Condição entre coluna e valor.
+     * @param valor Novo valor numérico.
+     * @return Condição codificada.
+     */
+    public static long comValor( long cond, double valor )
+    {
+        return ( cond & ~MASCARA_TERMO ) | ( milesimos( valor ) + DESLOCAMENTO );
+    }
+
+    /**
+     * Arredonda o valor para milésimos (metade para longe do zero, como na formatação da cláusula WHERE), limitado à
+     * faixa representável.
+     *
+     * @param valor Valor numérico.
+     * @return Valor em milésimos.
+     * @see #MAX_MILESIMOS
+     */
+    static long milesimos( double valor )
+    {
+        final double abs = Math.abs( valor ) * 1000.0;
+        final long m = abs >= MAX_MILESIMOS ? MAX_MILESIMOS : (long) Math.floor( abs + 0.5 );
+
+        return valor < 0 ? -m : m;
+    }
+
+    /**
+     * Verifica se o valor pode ser representado em uma condição sem ser limitado.
+     *
+     * @param valor Valor numérico.
+     * @return Verdadeiro se o valor está na faixa representável.
+     */
+    public static boolean representavel( double valor )
+    {
+        return Math.abs( valor ) * 1000.0 < MAX_MILESIMOS;
+    }
+
+    /**
+     * Ordena as condições e remove as repetidas, no próprio array.
+     *
+     * @param conds Condições.
+     * @param num   Número de condições do array.
+     * @return Número de condições distintas, ordenadas no início do array.
+     */
+    public static int normalizar( long[] conds, int num )
+    {
+        Arrays.sort( conds, 0, num );
+
+        int distintas = 0;
+
+        for ( int i = 0; i < num; i++ )
+        {
+            if ( distintas == 0 || conds[distintas - 1] != conds[i] )
+            {
+                conds[distintas++] = conds[i];
+            }
+        }
+
+        return distintas;
+    }
+
+    /**
+     * Impressão digital (hash de 64 bits) de uma condição, com boa dispersão dos bits.
+     *
+     * @param cond Condição.
+     * @return Impressão digital da condição.
+     */
+    public static long impressao( long cond )
+    {
+        // finalizador do MurmurHash3 (fmix64)
+        long h = cond;
+        h = ( h ^ ( h >>> 33 ) ) * 0xff51afd7ed558ccdL;
+        h = ( h ^ ( h >>> 33 ) ) * 0xc4ceb9fe1a85ec53L;
+        return h ^ ( h >>> 33 );
+    }
+
+    /**
+     * Impressão digital de uma regra: o XOR das impressões das suas condições distintas, independente da ordem.
+     *
+     * @param conds Condições distintas.
+     * @param num   Número de condições do array.
+     * @return Impressão digital da regra.
+     */
+    public static long impressao( long[] conds, int num )
+    {
+        long h = 0;
+
+        for ( int i = 0; i < num; i++ )
+        {
+            h ^= impressao( conds[i] );
+        }
+
+        return h;
+    }
+
+    /**
+     * Formata a condição como texto SQL.
+     *
+     * @param cond    Condição.
+     * @param colunas Nome das colunas.
+     * @return Condição no formato "atributo operador valor".
+     */
+    public static String formatar( long cond, List<String> colunas )
+    {
+        final String termo;
+
+        if ( entreColunas( cond ) )
+        {
+            termo = colunas.get( outraColuna( cond ) );
+        }
+        else
+        {
+            termo = formatarValorNumericoWhere( valor( cond ) );
+        }
+
+        return formatarCondicaoWhere( colunas.get( coluna( cond ) ), OPERADORES[operador( cond )], termo );
+    }
+
+    /**
+     * Compara dois valores conforme o operador. Assim como no SQL, comparações envolvendo valores nulos
+     * ({@link Double#NaN}) são falsas.
+     *
+     * @param a        Valor do atributo.
+     * @param operador Código do operador.
+     * @param b        Valor numérico ou de outro atributo.
+     * @return Retorna verdadeiro se a condição é satisfeita.
+     */
+    public static boolean comparar( double a, int operador, double b )
+    {
+        if ( Double.isNaN( a ) || Double.isNaN( b ) )
+        {
+            return false;
+        }
+
+        switch ( operador )
+        {
+            case MAIOR:
+                return a > b;
+            case MAIOR_IGUAL:
+                return a >= b;
+            case MENOR:
+                return a < b;
+            case MENOR_IGUAL:
+                return a <= b;
+            case DIFERENTE:
+                return a != b;
+            case IGUAL:
+                return a == b;
+            default:
+                throw new RuntimeException( "Operador inválido: " + operador );
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.tsprates.pso;
+
+import java.util.Arrays;
+
+/**
+ * Contadores por registro representados em fatias de bits (bit-sliced): o plano <code>k</code> guarda o k-ésimo bit
+ * do contador de cada registro. Somar ou subtrair um mapa de bits incrementa ou decrementa, palavra a palavra, o
+ * contador de todos os registros marcados.
+ * <p>
+ * Na avaliação em memória, o contador de cada registro é o número de condições da regra que o registro satisfaz, e a
+ * cobertura da regra é formada pelos registros cujo contador é igual ao número de condições. Assim, adicionar,
+ * remover ou alterar uma condição exige apenas o mapa de bits das condições envolvidas.
+ *
+ * @author thiago
+ * @see MapaBits
+ */
+final class ContadoresBits
+{
+
+    private final int palavras;
+
+    private long[][] planos = new long[0][];
+
+    private int numConjuntos = 0;
+
+    /**
+     * Construtor.
+     *
+     * @param palavras Número de palavras (long) dos mapas de bits.
+     */
+    ContadoresBits( int palavras )
+    {
+        this.palavras = palavras;
+    }
+
+    /**
+     * Zera todos os contadores.
+     */
+    void zerar()
+    {
+        for ( long[] plano : planos )
+        {
+            Arrays.fill( plano, 0L );
+        }
+
+        numConjuntos = 0;
+    }
+
+    /**
+     * Incrementa o contador dos registros marcados.
+     *
+     * @param bits Mapa de bits.
+     */
+    void somar( long[] bits )
+    {
+        numConjuntos += 1;
+
+        // o maior contador possível é o número de mapas somados
+        if ( ( numConjuntos >>> planos.length ) != 0 )
+        {
+            planos = Arrays.copyOf( planos, planos.length + 1 );
+            planos[planos.length - 1] = new long[palavras];
+        }
+
+        for ( int i = 0; i < palavras; i++ )
+        {
+            long vaiUm = bits[i];
+
+            for ( int k = 0; vaiUm != 0; k++ )
+            {
+                final long[] plano = planos[k];
+                final long t = plano[i] & vaiUm;
+                plano[i] ^= vaiUm;
+                vaiUm = t;
+            }
+        }
+    }
+
+    /**
+     * Decrementa o contador dos registros marcados. O mapa de bits deve ter sido somado anteriormente.
+     *
+     * @param bits Mapa de bits.
+     */
+    void subtrair( long[] bits )
+    {
+        numConjuntos -= 1;
+
+        for ( int i = 0; i < palavras; i++ )
+        {
+            long emprestimo = bits[i];
+
+            for ( int k = 0; emprestimo != 0; k++ )
+            {
+                final long[] plano = planos[k];
+                final long t = ~plano[i] & emprestimo;
+                plano[i] ^= emprestimo;
+                emprestimo = t;
+            }
+        }
+    }
+
+    /**
+     * Marca os registros cujo contador é igual ao número de mapas somados, ou seja, os registros presentes em todos
+     * os mapas. Sem mapas somados, todos os bits são marcados.
+     *
+     * @param destino Mapa de bits de destino.
+     */
+    void marcarTodos( long[] destino )
+    {
+        for ( int i = 0; i < palavras; i++ )
+        {
+            long iguais = -1L;
+
+            for ( int k = 0, len = planos.length; k < len && iguais != 0; k++ )
+            {
+                iguais &= ( ( numConjuntos >>> k ) & 1 ) != 0 ? planos[k][i] : ~planos[k][i];
+            }
+
+            destino[i] = iguais;
+        }
+    }
+
+    /**
+     * Retorna o número de mapas somados.
+     *
+     * @return Número de mapas.
+     */
+    int numConjuntos()
+    {
+        return numConjuntos;
+    }
+}
@@ -3,6 +3,8 @@ package com.github.tsprates.pso;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Banco de dados.
@@ -44,4 +46,23 @@ public class DB
         }
     }
 
+    /**
+     * Cria um pool de conexões com o banco de dados.
+     *
+     * @param numConexoes   Número de conexões.
+     * @param maxPreparadas Número máximo de consultas preparadas em cache por conexão.
+     * @return Pool de conexões.
+     */
+    public PoolConexoes criarPool( int numConexoes, int maxPreparadas )
+    {
+        final List<Connection> conexoes = new ArrayList<>();
+
+        for ( int i = 0; i < Math.max( 1, numConexoes ); i++ )
+        {
+            conexoes.add( conectar() );
+        }
+
+        return new PoolConexoes( conexoes, maxPreparadas );
+    }
+
 }
@@ -40,4 +40,17 @@ public class Distancia
 
         return particulaProxima;
     }
+
+    /**
+     * Retorna a partícula mais próxima do arquivo de partículas não dominadas, sem percorrer todo o arquivo.
+     *
+     * @param arquivo Arquivo de partículas não dominadas.
+     * @param p       Partícula.
+     * @return Partícula mais próxima.
+     * @see ArquivoPareto#maisProxima(Particula)
+     */
+    public static Particula retornarParticulaMaisProxima( ArquivoParetoLeitura arquivo, Particula p )
+    {
+        return arquivo.maisProxima( p );
+    }
 }
@@ -1,64 +1,182 @@
 package com.github.tsprates.pso;
 
-import org.apache.commons.lang3.StringUtils;
-
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Classe Fitness.
+ * Classe Fitness. As subclasses definem como as regras são avaliadas sobre a base de dados. O cálculo pode ser
+ * realizado por várias threads simultaneamente, desde que a k-pasta não seja alterada durante as avaliações.
  *
  * @author thiago
+ * @see FitnessSql
+ * @see FitnessMemoria
  */
-public class Fitness
+public abstract class Fitness
 {
 
-    private final Connection conexao;
+    private final List<String> colunas;
+
+    private final Map<String, Integer> indicePorId;
+
+    private final Map<String, long[]> bitsPorClasse;
 
-    private final String tabela;
+    private final Deque<long[]> coberturasLivres;
 
-    private final String colId;
+    private final int totalSize;
 
-    private final Map<String, List<String>> particulasPorClasse;
+    private final AtomicLong numAvaliacao = new AtomicLong();
 
-    private int totalSize = 0;
+    private final AtomicLong avaliacoesReservadas = new AtomicLong();
 
-    private long numAvaliacao = 0;
+    private volatile long limiteAvaliacoes = Long.MAX_VALUE;
 
     private List<List<String>> kpastas;
 
     private int k = 0;
 
-    private String notId;
+    private long[] bitsTeste;
+
+    private long[] bitsTreino;
+
+    private int tamanhoTeste;
+
+    private int tamanhoTreino;
+
+    private ConcurrentMap<ChaveRegra, double[]> cacheFitness;
+
+    private AtomicLong acertosCache;
+
+    private AtomicLong falhasCache;
+
+    private boolean cacheFitnessAtivo = false;
+
+    private boolean contarAcertosCache = true;
 
     /**
-     * Construtor.
+     * Construtor. Os IDs dos registros são mapeados para índices contíguos, e a pertinência de cada registro à sua
+     * classe é mantida em mapas de bits.
      *
-     * @param conexao              Conexão DB.
-     * @param colId                Campo ID.
-     * @param tabela               Nome da tabela no banco de dados.
+     * @param colunas              Colunas (atributos) da tabela, na ordem dos índices das condições.
      * @param particulasPorClasses Lista de partículas organizado por classes.
      */
-    public Fitness( Connection conexao, String colId, String tabela, Map<String, List<String>> particulasPorClasses )
+    protected Fitness( List<String> colunas, Map<String, List<String>> particulasPorClasses )
     {
-        this.conexao = conexao;
-        this.colId = colId;
-        this.tabela = tabela;
-        this.particulasPorClasse = particulasPorClasses;
+        this.colunas = colunas;
+        this.indicePorId = new HashMap<>();
+        this.bitsPorClasse = new HashMap<>();
+        this.cacheFitness = new ConcurrentHashMap<>();
+        this.acertosCache = new AtomicLong();
+        this.falhasCache = new AtomicLong();
+
+        int indice = 0;
+
+        for ( Entry<String, List<String>> entrada : new TreeMap<>( particulasPorClasses ).entrySet() )
+        {
+            for ( String id : entrada.getValue() )
+            {
+                indicePorId.put( id, indice++ );
+            }
+        }
+
+        totalSize = indice;
 
-        for ( String saida : particulasPorClasses.keySet() )
+        for ( Entry<String, List<String>> entrada : particulasPorClasses.entrySet() )
         {
-            totalSize += particulasPorClasses.get( saida ).size();
+            final long[] bits = MapaBits.criar( totalSize );
+
+            for ( String id : entrada.getValue() )
+            {
+                MapaBits.marcar( bits, indicePorId.get( id ) );
+            }
+
+            bitsPorClasse.put( entrada.getKey(), bits );
         }
+
+        this.coberturasLivres = new ConcurrentLinkedDeque<>();
+    }
+
+    /**
+     * Construtor de cópia. Os dados da base, os caches e as k-pastas são compartilhados; o número de avaliações e a
+     * k-pasta atual são próprios da nova instância.
+     *
+     * @param outra Calculadora de fitness.
+     */
+    protected Fitness( Fitness outra )
+    {
+        this.colunas = outra.colunas;
+        this.indicePorId = outra.indicePorId;
+        this.bitsPorClasse = outra.bitsPorClasse;
+        this.coberturasLivres = outra.coberturasLivres;
+        this.totalSize = outra.totalSize;
+        this.kpastas = outra.kpastas;
+
+        this.cacheFitness = outra.cacheFitness;
+        this.acertosCache = outra.acertosCache;
+        this.falhasCache = outra.falhasCache;
+        this.cacheFitnessAtivo = outra.cacheFitnessAtivo;
+        this.contarAcertosCache = outra.contarAcertosCache;
     }
 
+    /**
+     * Cria um contexto de avaliação para uma execução. O contexto possui as suas próprias k-pastas e cache de fitness
+     * (cujas chaves dependem da k-pasta), compartilhando apenas os dados da base, de modo que várias execuções possam
+     * ser realizadas simultaneamente.
+     *
+     * @param kpastas K-Pastas da execução.
+     * @return Calculadora de fitness da execução.
+     */
+    public Fitness criarExecucao( List<List<String>> kpastas )
+    {
+        final Fitness execucao = copiar();
+        execucao.cacheFitness = new ConcurrentHashMap<>();
+        execucao.acertosCache = new AtomicLong();
+        execucao.falhasCache = new AtomicLong();
+        execucao.setKPastas( kpastas );
+        return execucao;
+    }
+
+    /**
+     * Libera os recursos do contexto de avaliação da execução (por exemplo, tabelas temporárias no banco de dados).
+     *
+     * @see #criarExecucao(List)
+     */
+    public void encerrar()
+    {
+    }
+
+    /**
+     * Cria um contexto de avaliação para uma k-pasta. Cada contexto mantém a sua própria k-pasta e número de
+     * avaliações, permitindo que as k-pastas sejam treinadas simultaneamente.
+     *
+     * @param k Índice da k-pasta.
+     * @return Calculadora de fitness da k-pasta.
+     */
+    public Fitness criarPasta( int k )
+    {
+        final Fitness pasta = copiar();
+        pasta.setK( k );
+        return pasta;
+    }
+
+    /**
+     * Cria uma cópia da calculadora de fitness.
+     *
+     * @return Nova calculadora de fitness.
+     * @see #Fitness(Fitness)
+     */
+    protected abstract Fitness copiar();
+
     /**
      * Seta k-pasta.
      *
@@ -67,7 +185,112 @@ public class Fitness
     public void setK( int k )
     {
         this.k = k;
-        notId = StringUtils.join( kpastas.get( k ), ", " );
+
+        bitsTeste = MapaBits.criar( totalSize );
+
+        for ( String id : kpastas.get( k ) )
+        {
+            MapaBits.marcar( bitsTeste, indice( id ) );
+        }
+
+        bitsTreino = MapaBits.complemento( bitsTeste, totalSize );
+
+        tamanhoTeste = MapaBits.contar( bitsTeste );
+        tamanhoTreino = totalSize - tamanhoTeste;
+    }
+
+    /**
+     * Gera a cláusula SQL WHERE de uma regra.
+     *
+     * @param regra Condições da regra.
+     * @param num   Número de condições do array.
+     * @return String WHERE SQL.
+     * @see Condicao#formatar(long, List)
+     */
+    public String formatarWhere( long[] regra, int num )
+    {
+        final StringBuilder sb = new StringBuilder( "(" );
+
+        for ( int i = 0; i < num; i++ )
+        {
+            if ( i > 0 )
+            {
+                sb.append( ") AND (" );
+            }
+
+            sb.append( Condicao.formatar( regra[i], colunas ) );
+        }
+
+        return sb.append( ")" ).toString();
+    }
+
+    /**
+     * Retorna as colunas (atributos) da tabela.
+     *
+     * @return Colunas, na ordem dos índices das condições.
+     */
+    protected List<String> colunas()
+    {
+        return colunas;
+    }
+
+    /**
+     * Retorna o índice contíguo correspondente ao ID de um registro.
+     *
+     * @param id ID do registro.
+     * @return Índice do registro.
+     */
+    protected int indice( String id )
+    {
+        final Integer indice = indicePorId.get( id );
+
+        if ( indice == null )
+        {
+            throw new RuntimeException( "Registro não encontrado: " + id );
+        }
+
+        return indice;
+    }
+
+    /**
+     * Retorna o número total de registros.
+     *
+     * @return Número de registros.
+     */
+    protected final int numRegistros()
+    {
+        return totalSize;
+    }
+
+    /**
+     * Retorna o mapa de bits dos registros de teste (k-pasta atual) ou de treinamento.
+     *
+     * @param treinamento Treinamento.
+     * @return Mapa de bits dos registros.
+     */
+    protected long[] registros( boolean treinamento )
+    {
+        return treinamento ? bitsTreino : bitsTeste;
+    }
+
+    /**
+     * Retorna o índice da k-pasta atual.
+     *
+     * @return Índice da k-pasta.
+     */
+    protected int k()
+    {
+        return k;
+    }
+
+    /**
+     * Retorna a k-pasta atual (registros de teste).
+     *
+     * @return Lista de IDs da k-pasta atual.
+     */
+    protected List<String> kpastaAtual()
+    {
+        return kpastas.get( k );
     }
 
     /**
@@ -78,6 +301,7 @@ public class Fitness
     public void setKPastas( List<List<String>> kpastas )
     {
         this.kpastas = kpastas;
+        cacheFitness.clear();
     }
 
     /**
@@ -88,17 +312,7 @@ public class Fitness
      */
     public double[] calcular( Particula part )
     {
-        // atualiza o número de avaliação
-        numAvaliacao += 1;
-
-        final double[] r = realizarCalculo( part, true );
-
-        final double[] arr = new double[3];
-        arr[0] = 1.0 / part.numWhere();
-        arr[1] = r[0];
-        arr[2] = r[1];
-
-        return arr;
+        return calcular( part, true );
     }
 
     /**
@@ -110,11 +324,147 @@ public class Fitness
      */
     public double[] calcular( Particula part, boolean treinamento )
     {
-        // atualiza o número de avaliação
-        numAvaliacao += 1;
+        final double[] r;
+
+        if ( cacheFitnessAtivo )
+        {
+            final ChaveRegra chave = chaveCache( part, treinamento );
+            final double[] emCache = cacheFitness.get( chave );
+
+            if ( emCache != null )
+            {
+                acertosCache.incrementAndGet();
+
+                if ( contarAcertosCache )
+                {
+                    numAvaliacao.incrementAndGet();
+                }
+
+                r = emCache;
+            }
+            else
+            {
+                falhasCache.incrementAndGet();
+                numAvaliacao.incrementAndGet();
+
+                r = realizarCalculo( part, treinamento );
+                cacheFitness.put( chave, r );
+            }
+        }
+        else
+        {
+            // atualiza o número de avaliação
+            numAvaliacao.incrementAndGet();
+
+            r = realizarCalculo( part, treinamento );
+        }
+
+        return fitnessParticula( part, r );
+    }
+
+    /**
+     * Calcula o fitness de várias partículas de uma vez, permitindo que as subclasses avaliem todas as regras em uma
+     * única consulta. O resultado, o cache e a contagem de avaliações são os mesmos de chamadas sucessivas de
+     * {@link #calcular(Particula, boolean)}: regras repetidas no lote são calculadas uma vez e contabilizadas como
+     * acertos do cache.
+     *
+     * @param parts       Partículas.
+     * @param treinamento Se verdadeiro então fase de treinamento senão fase de teste.
+     * @return Fitness de cada partícula, na mesma ordem.
+     */
+    public List<double[]> calcular( List<Particula> parts, boolean treinamento )
+    {
+        final int size = parts.size();
+
+        final double[][] emCache = new double[size][];
+        final int[] indicePendente = new int[size];
+
+        final List<Particula> pendentes = new ArrayList<>();
+        final Map<ChaveRegra, Integer> pendentesPorChave = new HashMap<>();
+
+        for ( int i = 0; i < size; i++ )
+        {
+            final Particula part = parts.get( i );
+
+            indicePendente[i] = -1;
+
+            if ( cacheFitnessAtivo )
+            {
+                final ChaveRegra chave = chaveCache( part, treinamento );
+
+                emCache[i] = cacheFitness.get( chave );
+                final Integer pendente = pendentesPorChave.get( chave );
+
+                if ( emCache[i] != null || pendente != null )
+                {
+                    acertosCache.incrementAndGet();
+
+                    if ( contarAcertosCache )
+                    {
+                        numAvaliacao.incrementAndGet();
+                    }
+
+                    if ( pendente != null )
+                    {
+                        indicePendente[i] = pendente;
+                    }
+
+                    continue;
+                }
+
+                falhasCache.incrementAndGet();
+                pendentesPorChave.put( chave, pendentes.size() );
+            }
+
+            numAvaliacao.incrementAndGet();
+
+            indicePendente[i] = pendentes.size();
+            pendentes.add( part );
+        }
+
+        final List<double[]> calculados = realizarCalculo( pendentes, treinamento );
+
+        for ( Entry<ChaveRegra, Integer> entrada : pendentesPorChave.entrySet() )
+        {
+            cacheFitness.put( entrada.getKey(), calculados.get( entrada.getValue() ) );
+        }
+
+        final List<double[]> fits = new ArrayList<>( size );
+
+        for ( int i = 0; i < size; i++ )
+        {
+            final double[] r = indicePendente[i] >= 0 ? calculados.get( indicePendente[i] ) : emCache[i];
+            fits.add( fitnessParticula( parts.get( i ), r ) );
+        }
+
+        return fits;
+    }
+
+    /**
+     * Avalia várias partículas na fase de treinamento, de uma vez.
+     *
+     * @param parts Partículas.
+     * @see #calcular(List, boolean)
+     */
+    public void avaliar( List<Particula> parts )
+    {
+        final List<double[]> fits = calcular( parts, true );
 
-        final double[] r = realizarCalculo( part, treinamento );
+        for ( int i = 0, size = parts.size(); i < size; i++ )
+        {
+            parts.get( i ).setFitness( fits.get( i ) );
+        }
+    }
 
+    /**
+     * Monta o fitness da partícula a partir da efetividade e acurácia da regra.
+     *
+     * @param part Partícula.
+     * @param r    Efetividade e acurácia.
+     * @return Array contendo a complexidade WHERE, efetividade e acurácia.
+     */
+    private static double[] fitnessParticula( Particula part, double[] r )
+    {
         final double[] arr = new double[3];
         arr[0] = 1.0 / part.numWhere();
         arr[1] = r[0];
@@ -124,42 +474,62 @@ public class Fitness
     }
 
     /**
-     * Avalia determinada partícula pela cláusula SQL WHERE.
+     * Monta a chave do cache de fitness: k-pasta, fase (treinamento ou teste), classe e a impressão digital da regra,
+     * mantida incrementalmente pela partícula.
      *
-     * @param where       String de uma cláusula WHERE.
+     * @param part        Partícula.
      * @param treinamento Treinamento.
-     * @return Retorna lista de String correspondente a uma cláusula WHERE.
+     * @return Chave do cache de fitness.
      */
-    private List<String> consultaSql( String where, boolean treinamento )
+    private ChaveRegra chaveCache( Particula part, boolean treinamento )
     {
-        List<String> result = new ArrayList<>();
+        return new ChaveRegra( 2 * k + ( treinamento ? 1 : 0 ), part.classe(), part.impressao() );
+    }
 
-        String sql;
+    /**
+     * Avalia determinada partícula pela cláusula SQL WHERE, marcando no mapa de bits os registros cobertos. Apenas os
+     * registros da fase informada (treinamento ou teste) são considerados na contagem.
+     *
+     * @param p           Partícula.
+     * @param treinamento Treinamento.
+     * @param cobertura   Mapa de bits a ser preenchido com os registros cobertos pela partícula.
+     */
+    protected abstract void consultar( Particula p, boolean treinamento, long[] cobertura );
 
-        if ( treinamento )
-        {
-            sql = "SELECT " + colId + " AS id " + "FROM " + tabela + " " + "WHERE " + colId + " NOT IN (" + notId + ") "
-                            + "AND " + where;
-        }
-        else
+    /**
+     * Conta os registros da fase informada cobertos pela partícula. Por padrão, a cobertura é obtida por
+     * {@link #consultar(Particula, boolean, long[])} e contada nos mapas de bits; as subclasses podem realizar a
+     * contagem diretamente na base de dados.
+     *
+     * @param p           Partícula.
+     * @param treinamento Treinamento.
+     * @return Array com o número de registros cobertos da classe da partícula (verdadeiros positivos) e o número
+     * total de registros cobertos.
+     */
+    protected int[] contarCobertura( Particula p, boolean treinamento )
+    {
+        final long[] verdadeiros = bitsPorClasse.get( p.classe() );
+        final long[] registros = registros( treinamento );
+
+        // mapa de bits de trabalho emprestado de um pool, e não por thread: com uma thread virtual por avaliação,
+        // o pool mantém apenas um mapa por avaliação simultânea (limitadas pelo semáforo ou pelo número de threads)
+        long[] cobertura = coberturasLivres.pollFirst();
+
+        if ( cobertura == null )
         {
-            sql = "SELECT " + colId + " AS id " + "FROM " + tabela + " " + "WHERE " + colId + " IN (" + notId + ") "
-                            + "AND " + where;
+            cobertura = MapaBits.criar( totalSize );
         }
 
-        try ( PreparedStatement ps = conexao.prepareStatement( sql ); ResultSet rs = ps.executeQuery() )
+        try
         {
+            consultar( p, treinamento, cobertura );
 
-            while ( rs.next() )
-            {
-                result.add( rs.getString( "id" ) );
-            }
-
-            return result;
+            return new int[] { MapaBits.contarInterseccao( cobertura, verdadeiros, registros ),
+                            MapaBits.contarInterseccao( cobertura, registros ) };
         }
-        catch ( SQLException e )
+        finally
         {
-            throw new RuntimeException( "Erro ao recupera as classes no banco de dados.", e );
+            coberturasLivres.offerFirst( cobertura );
         }
     }
 
@@ -172,37 +542,67 @@ public class Fitness
      */
     private double[] realizarCalculo( Particula p, boolean treinamento )
     {
-        final String classe = p.classe();
-        final List<String> verdadeiros = new ArrayList<>( particulasPorClasse.get( classe ) );
+        return calcularEfetividade( p.classe(), treinamento, contarCobertura( p, treinamento ) );
+    }
 
-        final List<String> kpastaAtual = kpastas.get( k );
-        int total;
+    /**
+     * Calcula a especificidade e acurácia de várias partículas.
+     *
+     * @param parts       Partículas.
+     * @param treinamento Treinamento.
+     * @return Efetividade e acurácia de cada partícula, na mesma ordem.
+     */
+    private List<double[]> realizarCalculo( List<Particula> parts, boolean treinamento )
+    {
+        final List<int[]> contagens = contarCobertura( parts, treinamento );
+        final List<double[]> resultados = new ArrayList<>( parts.size() );
 
-        if ( treinamento )
+        for ( int i = 0, size = parts.size(); i < size; i++ )
         {
-            verdadeiros.removeAll( kpastaAtual );
-            total = totalSize - kpastaAtual.size();
-        }
-        else
-        {
-            verdadeiros.retainAll( kpastaAtual );
-            total = kpastaAtual.size();
+            resultados.add( calcularEfetividade( parts.get( i ).classe(), treinamento, contagens.get( i ) ) );
         }
 
-        final List<String> consultaSql = consultaSql( p.whereSql(), treinamento );
-        final int consultaSqlSize = consultaSql.size();
+        return resultados;
+    }
 
-        final int verdadeirosSize = verdadeiros.size();
+    /**
+     * Conta os registros cobertos por várias partículas. Por padrão, cada partícula é contada separadamente.
+     *
+     * @param parts       Partículas.
+     * @param treinamento Treinamento.
+     * @return Contagens de cada partícula, na mesma ordem.
+     * @see #contarCobertura(Particula, boolean)
+     */
+    protected List<int[]> contarCobertura( List<Particula> parts, boolean treinamento )
+    {
+        final List<int[]> contagens = new ArrayList<>( parts.size() );
 
-        double tp = 0.0;
-        for ( String id : consultaSql )
+        for ( Particula p : parts )
         {
-            if ( verdadeiros.contains( id ) )
-            {
-                tp += 1.0;
-            }
+            contagens.add( contarCobertura( p, treinamento ) );
         }
 
+        return contagens;
+    }
+
+    /**
+     * Calcula a efetividade e acurácia a partir da contagem dos registros cobertos.
+     *
+     * @param classe      Classe da regra.
+     * @param treinamento Treinamento.
+     * @param contagem    Verdadeiros positivos e total de registros cobertos.
+     * @return Retorna a efetividade e acurácia calculada.
+     */
+    private double[] calcularEfetividade( String classe, boolean treinamento, int[] contagem )
+    {
+        final long[] verdadeiros = bitsPorClasse.get( classe );
+        final long[] registros = registros( treinamento );
+        final int total = treinamento ? tamanhoTreino : tamanhoTeste;
+
+        final double tp = contagem[0];
+        final int consultaSqlSize = contagem[1];
+        final int verdadeirosSize = MapaBits.contarInterseccao( verdadeiros, registros );
+
         double fp = consultaSqlSize - tp;
         double fn = verdadeirosSize - tp;
         double tn = total - fn - fp - tp;
@@ -216,6 +616,47 @@ public class Fitness
         return new double[] { efetividade, acuracia };
     }
 
+    /**
+     * Retorna estatísticas internas da avaliação (por exemplo, de caches), para acompanhamento da execução.
+     *
+     * @return String com as estatísticas ou vazia se não houver.
+     */
+    public String estatisticas()
+    {
+        if ( !cacheFitnessAtivo )
+        {
+            return "";
+        }
+
+        final long acertos = acertosCache.get();
+        final long total = acertos + falhasCache.get();
+        final double taxa = total == 0 ? 0.0 : 100.0 * acertos / total;
+
+        return String.format( Locale.ROOT, "Cache de fitness: acertos=%d, falhas=%d, taxa=%.2f%%, entradas=%d",
+                              acertos, total - acertos, taxa, cacheFitness.size() );
+    }
+
+    /**
+     * Ativa ou desativa o cache de fitness das regras.
+     *
+     * @param ativo Se verdadeiro, regras já avaliadas na mesma k-pasta e fase não são recalculadas.
+     */
+    public void setCacheFitness( boolean ativo )
+    {
+        this.cacheFitnessAtivo = ativo;
+        cacheFitness.clear();
+    }
+
+    /**
+     * Define se os acertos do cache de fitness são contabilizados no número de avaliações.
+     *
+     * @param contar Se verdadeiro, acertos do cache contam como avaliações (limite <code>maxiter</code>).
+     */
+    public void setContarAcertosCache( boolean contar )
+    {
+        this.contarAcertosCache = contar;
+    }
+
     /**
      * Retorna o número de avaliação da função fitness.
      *
@@ -223,7 +664,7 @@ public class Fitness
      */
     public long numAvaliacao()
     {
-        return numAvaliacao;
+        return numAvaliacao.get();
     }
 
     /**
@@ -233,7 +674,7 @@ public class Fitness
      */
     public void setNumAvaliacao( int num )
     {
-        this.numAvaliacao = num;
+        this.numAvaliacao.set( num );
     }
 
     /**
@@ -241,7 +682,60 @@ public class Fitness
      */
     public void resetNumAvaliacao()
     {
-        this.numAvaliacao = 0;
+        this.numAvaliacao.set( 0 );
+    }
+
+    /**
+     * Seta o limite de avaliações (<code>maxiter</code>) considerado pelas reservas.
+     *
+     * @param limite Número máximo de avaliações.
+     * @see #reservarAvaliacoes(int)
+     */
+    public void setLimiteAvaliacoes( long limite )
+    {
+        this.limiteAvaliacoes = limite;
+    }
+
+    /**
+     * Reserva até <code>num</code> avaliações do limite, descontando as avaliações já realizadas e as reservadas que
+     * ainda estão em andamento. Cada avaliação reservada deve ser liberada com {@link #liberarAvaliacoes(int)} após a
+     * sua conclusão. Como cada avaliação incrementa o número de avaliações no máximo uma vez, avaliar apenas as
+     * partículas reservadas nunca excede o limite, mesmo com avaliações simultâneas.
+     *
+     * @param num Número de avaliações desejado.
+     * @return Número de avaliações reservadas, entre zero e <code>num</code>.
+     */
+    public int reservarAvaliacoes( int num )
+    {
+        while ( true )
+        {
+            // as reservas são lidas antes das avaliações: uma avaliação concluída entre as leituras é contada duas
+            // vezes, nunca nenhuma
+            final long reservadas = avaliacoesReservadas.get();
+            final long disponiveis = limiteAvaliacoes - numAvaliacao.get() - reservadas;
+            final int n = (int) Math.max( 0, Math.min( num, disponiveis ) );
+
+            if ( n == 0 )
+            {
+                return 0;
+            }
+
+            if ( avaliacoesReservadas.compareAndSet( reservadas, reservadas + n ) )
+            {
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Libera avaliações reservadas já concluídas.
+     *
+     * @param num Número de avaliações.
+     * @see #reservarAvaliacoes(int)
+     */
+    public void liberarAvaliacoes( int num )
+    {
+        avaliacoesReservadas.addAndGet( -num );
     }
 
     /**
@@ -250,22 +744,18 @@ public class Fitness
      * @param repositorio Partículas não dominadas, divididas por classes.
      * @return Mapa de fitness das partículas.
      */
-    public Map<String, List<double[]>> testar( Map<String, List<Particula>> repositorio )
+    public Map<String, List<double[]>> testar( Map<String, ? extends Collection<Particula>> repositorio )
     {
         Map<String, List<double[]>> mapFit = new TreeMap<>();
 
-        for ( Entry<String, List<Particula>> classePart : repositorio.entrySet() )
+        for ( Entry<String, ? extends Collection<Particula>> classePart : repositorio.entrySet() )
         {
             String saida = classePart.getKey();
 
             mapFit.put( saida, new ArrayList<double[]>() );
 
-            List<Particula> parts = classePart.getValue();
-            for ( Particula part : parts )
-            {
-                double[] arr = calcular( part, false );
-                mapFit.get( saida ).add( arr );
-            }
+            // as partículas de cada classe são avaliadas em lote
+            mapFit.get( saida ).addAll( calcular( new ArrayList<>( classePart.getValue() ), false ) );
         }
 
         return mapFit;
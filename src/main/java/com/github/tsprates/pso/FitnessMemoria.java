@@ -0,0 +1,295 @@
+package com.github.tsprates.pso;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fitness avaliado em memória. A tabela é carregada uma única vez em colunas de tipos primitivos e as regras das
+ * partículas são avaliadas sem consultas ao banco de dados. A cobertura de cada condição é mantida em um cache de
+ * mapas de bits, de modo que a cobertura de uma regra é a interseção dos mapas de suas condições.
+ *
+ * @author thiago
+ */
+public final class FitnessMemoria
+                extends Fitness
+{
+
+    private final CacheBits cacheCondicoes;
+
+    private double[][] dados;
+
+    /**
+     * Construtor.
+     *
+     * @param conexoes             Pool de conexões DB.
+     * @param colId                Campo ID.
+     * @param tabela               Nome da tabela no banco de dados.
+     * @param colunas              Colunas (atributos) da tabela.
+     * @param particulasPorClasses Lista de partículas organizado por classes.
+     * @param memoriaCache         Memória máxima do cache de condições, em bytes.
+     */
+    public FitnessMemoria( PoolConexoes conexoes, String colId, String tabela, List<String> colunas,
+                           Map<String, List<String>> particulasPorClasses, long memoriaCache )
+    {
+        super( colunas, particulasPorClasses );
+
+        this.cacheCondicoes = new CacheBits( memoriaCache, MapaBits.criar( numRegistros() ).length );
+
+        carregarTabela( conexoes, colId, tabela, colunas );
+    }
+
+    /**
+     * Construtor.
+     *
+     * @param ids                  IDs dos registros.
+     * @param dados                Valores de cada coluna, indexados por coluna e pela ordem dos IDs.
+     * @param colunas              Colunas (atributos) da tabela.
+     * @param particulasPorClasses Lista de partículas organizado por classes.
+     * @param memoriaCache         Memória máxima do cache de condições, em bytes.
+     */
+    FitnessMemoria( String[] ids, double[][] dados, List<String> colunas,
+                    Map<String, List<String>> particulasPorClasses, long memoriaCache )
+    {
+        super( colunas, particulasPorClasses );
+
+        this.cacheCondicoes = new CacheBits( memoriaCache, MapaBits.criar( numRegistros() ).length );
+
+        ordenarRegistros( ids, dados );
+    }
+
+    /**
+     * Construtor de cópia. A tabela e o cache de condições são compartilhados.
+     *
+     * @param outra Calculadora de fitness.
+     */
+    private FitnessMemoria( FitnessMemoria outra )
+    {
+        super( outra );
+
+        this.cacheCondicoes = outra.cacheCondicoes;
+        this.dados = outra.dados;
+    }
+
+    @Override
+    protected Fitness copiar()
+    {
+        return new FitnessMemoria( this );
+    }
+
+    /**
+     * Carrega a tabela do banco de dados em colunas de tipos primitivos. Valores nulos são representados por
+     * {@link Double#NaN}.
+     *
+     * @param conexoes Pool de conexões DB.
+     * @param colId    Campo ID.
+     * @param tabela   Nome da tabela no banco de dados.
+     * @param colunas  Colunas (atributos) da tabela.
+     */
+    private void carregarTabela( PoolConexoes conexoes, String colId, String tabela, List<String> colunas )
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for ( String coluna : colunas )
+        {
+            sb.append( ", " ).append( coluna );
+        }
+
+        final String sql = "SELECT " + colId + " AS col_id" + sb.toString() + " FROM " + tabela;
+
+        final List<String> listaIds = new ArrayList<>();
+        final List<double[]> linhas = new ArrayList<>();
+        final int numCols = colunas.size();
+
+        try ( PoolConexoes.Conexao c = conexoes.obter(); ResultSet rs = c.preparar( sql ).executeQuery() )
+        {
+            while ( rs.next() )
+            {
+                listaIds.add( rs.getString( "col_id" ) );
+
+                final double[] linha = new double[numCols];
+
+                for ( int i = 0; i < numCols; i++ )
+                {
+                    final double valor = rs.getDouble( i + 2 );
+                    linha[i] = rs.wasNull() ? Double.NaN : valor;
+                }
+
+                linhas.add( linha );
+            }
+        }
+        catch ( SQLException e )
+        {
+            throw new RuntimeException( "Erro ao carregar a tabela em memória.", e );
+        }
+
+        final int numLinhas = linhas.size();
+        final double[][] colunasLidas = new double[numCols][numLinhas];
+
+        for ( int j = 0; j < numLinhas; j++ )
+        {
+            final double[] linha = linhas.get( j );
+
+            for ( int i = 0; i < numCols; i++ )
+            {
+                colunasLidas[i][j] = linha[i];
+            }
+        }
+
+        ordenarRegistros( listaIds.toArray( new String[0] ), colunasLidas );
+    }
+
+    /**
+     * Reorganiza as colunas carregadas conforme os índices contíguos dos registros.
+     *
+     * @param ids          IDs dos registros, na ordem em que foram carregados.
+     * @param colunasLidas Valores de cada coluna, na ordem em que foram carregados.
+     */
+    private void ordenarRegistros( String[] ids, double[][] colunasLidas )
+    {
+        if ( ids.length != numRegistros() )
+        {
+            throw new RuntimeException( "Número de registros carregados difere do número de registros por classe." );
+        }
+
+        dados = new double[colunasLidas.length][ids.length];
+
+        for ( int j = 0; j < ids.length; j++ )
+        {
+            final int indice = indice( ids[j] );
+
+            for ( int i = 0; i < colunasLidas.length; i++ )
+            {
+                dados[i][indice] = colunasLidas[i][j];
+            }
+        }
+    }
+
+    /**
+     * A cobertura da regra é a interseção da cobertura de cada condição. A partícula mantém, como estado da
+     * avaliação, o número de condições satisfeitas por registro; quando apenas algumas condições foram adicionadas ou
+     * removidas desde a última avaliação, somente essas condições são consultadas.
+     *
+     * @see ContadoresBits
+     */
+    @Override
+    protected void consultar( Particula p, boolean treinamento, long[] cobertura )
+    {
+        final Object estado = p.estadoAvaliacao();
+        final int numAlteracoes = p.numAlteracoes();
+
+        final ContadoresBits contadores;
+
+        if ( estado instanceof ContadoresBits && numAlteracoes >= 0 )
+        {
+            contadores = (ContadoresBits) estado;
+
+            for ( int i = 0; i < numAlteracoes; i++ )
+            {
+                final long alteracao = p.alteracao( i );
+
+                if ( ( alteracao & Particula.REMOVIDA ) != 0 )
+                {
+                    contadores.subtrair( coberturaCondicao( alteracao & ~Particula.REMOVIDA ) );
+                }
+                else
+                {
+                    contadores.somar( coberturaCondicao( alteracao ) );
+                }
+            }
+        }
+        else
+        {
+            if ( estado instanceof ContadoresBits )
+            {
+                contadores = (ContadoresBits) estado;
+                contadores.zerar();
+            }
+            else
+            {
+                contadores = new ContadoresBits( cobertura.length );
+            }
+
+            final long[] conds = p.posicao();
+
+            for ( int c = 0, num = p.numWhere(); c < num; c++ )
+            {
+                contadores.somar( coberturaCondicao( conds[c] ) );
+            }
+        }
+
+        contadores.marcarTodos( cobertura );
+        p.setEstadoAvaliacao( contadores );
+    }
+
+    /**
+     * Retorna o mapa de bits dos registros cobertos por uma condição, consultando o cache de condições.
+     *
+     * @param cond Condição codificada.
+     * @return Mapa de bits de todos os registros que satisfazem a condição.
+     */
+    private long[] coberturaCondicao( long cond )
+    {
+        long[] bits = cacheCondicoes.get( cond );
+
+        if ( bits == null )
+        {
+            bits = avaliarCondicao( cond );
+            cacheCondicoes.put( cond, bits );
+        }
+
+        return bits;
+    }
+
+    /**
+     * Avalia uma condição sobre todos os registros da tabela.
+     *
+     * @param cond Condição codificada.
+     * @return Mapa de bits dos registros que satisfazem a condição.
+     */
+    private long[] avaliarCondicao( long cond )
+    {
+        final double[] col = dados[Condicao.coluna( cond )];
+        final int oper = Condicao.operador( cond );
+
+        final long[] bits = MapaBits.criar( numRegistros() );
+
+        if ( Condicao.entreColunas( cond ) )
+        {
+            final double[] colValor = dados[Condicao.outraColuna( cond )];
+
+            for ( int i = 0, len = col.length; i < len; i++ )
+            {
+                if ( Condicao.comparar( col[i], oper, colValor[i] ) )
+                {
+                    MapaBits.marcar( bits, i );
+                }
+            }
+        }
+        else
+        {
+            final double valor = Condicao.valor( cond );
+
+            for ( int i = 0, len = col.length; i < len; i++ )
+            {
+                if ( Condicao.comparar( col[i], oper, valor ) )
+                {
+                    MapaBits.marcar( bits, i );
+                }
+            }
+        }
+
+        return bits;
+    }
+
+    @Override
+    public String estatisticas()
+    {
+        final String estatisticas = super.estatisticas();
+        final String condicoes = "Cache de condições: " + cacheCondicoes;
+
+        return estatisticas.isEmpty() ? condicoes : estatisticas + "\n" + condicoes;
+    }
+}
@@ -0,0 +1,362 @@
+package com.github.tsprates.pso;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fitness avaliado por consultas SQL no banco de dados. Por padrão, a matriz de confusão é contada pelo próprio
+ * banco em uma consulta agregada (<code>COUNT(*) FILTER</code>, PostgreSQL 9.4 ou superior), que retorna apenas o
+ * número de verdadeiros positivos e de registros cobertos; opcionalmente, os IDs cobertos são recuperados e contados
+ * na aplicação. Várias regras podem ser contadas em lote, em uma única consulta. A k-pasta de cada registro é
+ * materializada em uma tabela temporária por execução, e as consultas filtram a fase pela junção com essa tabela.
+ * <p>
+ * As consultas utilizam conexões de um pool, de modo que avaliações simultâneas são distribuídas entre as conexões.
+ * Como tabelas temporárias são visíveis apenas na própria sessão, a tabela das k-pastas é criada em cada conexão na
+ * primeira consulta da execução realizada nela.
+ *
+ * @author thiago
+ */
+public class FitnessSql
+                extends Fitness
+{
+
+    private static final AtomicInteger NUM_TABELAS_PASTAS = new AtomicInteger();
+
+    private final PoolConexoes conexoes;
+
+    private final String tabela;
+
+    private final String colId;
+
+    private final String colClasse;
+
+    private final boolean agregarContagem;
+
+    private final int tamanhoLote;
+
+    private List<List<String>> kpastas;
+
+    private String tabelaPastas;
+
+    private String sqlJuncao;
+
+    private String sqlContagem;
+
+    private String sqlIds;
+
+    /**
+     * Construtor.
+     *
+     * @param conexoes             Pool de conexões DB.
+     * @param colId                Campo ID.
+     * @param colClasse            Campo da classe.
+     * @param tabela               Nome da tabela no banco de dados.
+     * @param colunas              Colunas (atributos) da tabela.
+     * @param particulasPorClasses Lista de partículas organizado por classes.
+     * @param agregarContagem      Se verdadeiro, a contagem é realizada no banco de dados; senão os IDs cobertos são
+     *                             recuperados.
+     * @param tamanhoLote          Número máximo de regras contadas na mesma consulta (contagem agregada).
+     */
+    public FitnessSql( PoolConexoes conexoes, String colId, String colClasse, String tabela, List<String> colunas,
+                       Map<String, List<String>> particulasPorClasses, boolean agregarContagem, int tamanhoLote )
+    {
+        super( colunas, particulasPorClasses );
+
+        this.conexoes = conexoes;
+        this.colId = colId;
+        this.colClasse = colClasse;
+        this.tabela = tabela;
+        this.agregarContagem = agregarContagem;
+        this.tamanhoLote = Math.max( 1, tamanhoLote );
+    }
+
+    /**
+     * Construtor de cópia.
+     *
+     * @param outra Calculadora de fitness.
+     */
+    private FitnessSql( FitnessSql outra )
+    {
+        super( outra );
+
+        this.conexoes = outra.conexoes;
+        this.colId = outra.colId;
+        this.colClasse = outra.colClasse;
+        this.tabela = outra.tabela;
+        this.agregarContagem = outra.agregarContagem;
+        this.tamanhoLote = outra.tamanhoLote;
+        this.kpastas = outra.kpastas;
+        this.tabelaPastas = outra.tabelaPastas;
+        this.sqlJuncao = outra.sqlJuncao;
+        this.sqlContagem = outra.sqlContagem;
+        this.sqlIds = outra.sqlIds;
+    }
+
+    @Override
+    protected Fitness copiar()
+    {
+        return new FitnessSql( this );
+    }
+
+    @Override
+    public void setKPastas( List<List<String>> kpastas )
+    {
+        super.setKPastas( kpastas );
+
+        encerrar();
+        definirPastas( kpastas );
+    }
+
+    /**
+     * Define a tabela temporária das k-pastas da execução e as consultas que a utilizam. A tabela é criada em cada
+     * conexão apenas quando utilizada ({@link #obterConexao()}).
+     *
+     * @param kpastas K-Pastas.
+     */
+    private void definirPastas( List<List<String>> kpastas )
+    {
+        final String nome = "pso_pastas_" + NUM_TABELAS_PASTAS.incrementAndGet();
+
+        final String juncao = " FROM " + tabela + " JOIN " + nome + " ON " + nome + ".pso_id = " + tabela + "."
+                        + colId + " WHERE " + nome + ".pso_pasta ";
+
+        this.kpastas = kpastas;
+        this.tabelaPastas = nome;
+        this.sqlJuncao = juncao;
+        this.sqlContagem = "SELECT COUNT(*) FILTER (WHERE CAST(" + colClasse + " AS VARCHAR) = ?) AS tp, "
+                        + "COUNT(*) AS cobertos" + juncao;
+        this.sqlIds = "SELECT " + tabela + "." + colId + " AS id" + juncao;
+    }
+
+    /**
+     * Obtém uma conexão do pool, criando nela a tabela temporária das k-pastas caso ainda não exista.
+     *
+     * @return Conexão com a tabela das k-pastas.
+     */
+    private PoolConexoes.Conexao obterConexao()
+    {
+        final PoolConexoes.Conexao c = conexoes.obter();
+
+        if ( c.possuiTemporaria( tabelaPastas ) )
+        {
+            return c;
+        }
+
+        try
+        {
+            criarTabelaPastas( c.conexao(), tabelaPastas );
+        }
+        catch ( SQLException e )
+        {
+            c.close();
+            throw new RuntimeException( "Erro ao criar a tabela temporária das k-pastas.", e );
+        }
+
+        c.registrarTemporaria( tabelaPastas );
+
+        return c;
+    }
+
+    /**
+     * Materializa a k-pasta de cada registro em uma tabela temporária indexada da sessão. As consultas filtram a fase
+     * pela junção com essa tabela, com um texto SQL curto e parametrizado pela k-pasta, em vez de listar os IDs da
+     * k-pasta em cada consulta.
+     *
+     * @param conexao Conexão.
+     * @param nome    Nome da tabela temporária.
+     * @throws SQLException Erro ao criar a tabela.
+     */
+    private void criarTabelaPastas( Connection conexao, String nome ) throws SQLException
+    {
+        try ( Statement st = conexao.createStatement() )
+        {
+            st.execute( "CREATE TEMP TABLE " + nome + " AS SELECT " + colId + " AS pso_id, "
+                                        + "CAST(NULL AS INTEGER) AS pso_pasta FROM " + tabela );
+        }
+
+        final String sql = "UPDATE " + nome + " SET pso_pasta = ? WHERE CAST(pso_id AS VARCHAR) = ANY (?)";
+
+        try ( PreparedStatement ps = conexao.prepareStatement( sql ) )
+        {
+            for ( int k = 0, size = kpastas.size(); k < size; k++ )
+            {
+                ps.setInt( 1, k );
+                ps.setArray( 2, conexao.createArrayOf( "varchar", kpastas.get( k ).toArray() ) );
+                ps.addBatch();
+            }
+
+            ps.executeBatch();
+        }
+
+        try ( Statement st = conexao.createStatement() )
+        {
+            st.execute( "CREATE INDEX ON " + nome + " (pso_id)" );
+            st.execute( "ANALYZE " + nome );
+        }
+    }
+
+    /**
+     * Descarta a tabela temporária das k-pastas em todas as conexões.
+     */
+    @Override
+    public void encerrar()
+    {
+        if ( tabelaPastas == null )
+        {
+            return;
+        }
+
+        conexoes.descartarTemporaria( tabelaPastas );
+
+        tabelaPastas = null;
+    }
+
+    /**
+     * Filtro da fase sobre a k-pasta de cada registro.
+     *
+     * @param treinamento Treinamento.
+     * @return Comparação com a k-pasta atual, parametrizada.
+     */
+    private static String filtroFase( boolean treinamento )
+    {
+        return treinamento ? "<> ?" : "= ?";
+    }
+
+    @Override
+    protected int[] contarCobertura( Particula p, boolean treinamento )
+    {
+        if ( !agregarContagem )
+        {
+            return super.contarCobertura( p, treinamento );
+        }
+
+        final String sql = sqlContagem + filtroFase( treinamento ) + " AND " + p.whereSql();
+
+        // o texto SQL contém a regra e não é mantido no cache de consultas preparadas da conexão
+        try ( PoolConexoes.Conexao c = obterConexao(); PreparedStatement ps = c.conexao().prepareStatement( sql ) )
+        {
+            ps.setString( 1, p.classe() );
+            ps.setInt( 2, k() );
+
+            try ( ResultSet rs = ps.executeQuery() )
+            {
+                rs.next();
+                return new int[] { rs.getInt( "tp" ), rs.getInt( "cobertos" ) };
+            }
+        }
+        catch ( SQLException e )
+        {
+            throw new RuntimeException( "Erro ao contar os registros cobertos no banco de dados.", e );
+        }
+    }
+
+    /**
+     * Conta os registros cobertos por várias regras em uma única consulta, que percorre a tabela uma vez: cada regra
+     * corresponde a um par de agregados <code>COUNT(*) FILTER</code>. As regras são divididas em lotes de no máximo
+     * {@link #tamanhoLote} regras.
+     */
+    @Override
+    protected List<int[]> contarCobertura( List<Particula> parts, boolean treinamento )
+    {
+        if ( !agregarContagem || parts.size() == 1 )
+        {
+            return super.contarCobertura( parts, treinamento );
+        }
+
+        final List<int[]> contagens = new ArrayList<>( parts.size() );
+
+        for ( int inicio = 0, size = parts.size(); inicio < size; inicio += tamanhoLote )
+        {
+            contarLote( parts.subList( inicio, Math.min( size, inicio + tamanhoLote ) ), treinamento, contagens );
+        }
+
+        return contagens;
+    }
+
+    /**
+     * Conta os registros cobertos por um lote de regras em uma única consulta.
+     *
+     * @param lote        Partículas do lote.
+     * @param treinamento Treinamento.
+     * @param contagens   Lista onde as contagens de cada partícula são adicionadas.
+     */
+    private void contarLote( List<Particula> lote, boolean treinamento, List<int[]> contagens )
+    {
+        final StringBuilder sql = new StringBuilder( "SELECT " );
+
+        for ( int i = 0, size = lote.size(); i < size; i++ )
+        {
+            final String where = lote.get( i ).whereSql();
+
+            if ( i > 0 )
+            {
+                sql.append( ", " );
+            }
+
+            sql.append( "COUNT(*) FILTER (WHERE " ).append( where ).append( " AND CAST(" ).append( colClasse )
+               .append( " AS VARCHAR) = ?), " );
+            sql.append( "COUNT(*) FILTER (WHERE " ).append( where ).append( ")" );
+        }
+
+        sql.append( sqlJuncao ).append( filtroFase( treinamento ) );
+
+        try ( PoolConexoes.Conexao c = obterConexao();
+              PreparedStatement ps = c.conexao().prepareStatement( sql.toString() ) )
+        {
+            int param = 1;
+
+            for ( Particula p : lote )
+            {
+                ps.setString( param++, p.classe() );
+            }
+
+            ps.setInt( param, k() );
+
+            try ( ResultSet rs = ps.executeQuery() )
+            {
+                rs.next();
+
+                for ( int i = 0, size = lote.size(); i < size; i++ )
+                {
+                    contagens.add( new int[] { rs.getInt( 2 * i + 1 ), rs.getInt( 2 * i + 2 ) } );
+                }
+            }
+        }
+        catch ( SQLException e )
+        {
+            throw new RuntimeException( "Erro ao contar os registros cobertos no banco de dados.", e );
+        }
+    }
+
+    @Override
+    protected void consultar( Particula p, boolean treinamento, long[] cobertura )
+    {
+        MapaBits.limpar( cobertura );
+
+        final String sql = sqlIds + filtroFase( treinamento ) + " AND " + p.whereSql();
+
+        try ( PoolConexoes.Conexao c = obterConexao(); PreparedStatement ps = c.conexao().prepareStatement( sql ) )
+        {
+            ps.setInt( 1, k() );
+
+            try ( ResultSet rs = ps.executeQuery() )
+            {
+                while ( rs.next() )
+                {
+                    MapaBits.marcar( cobertura, indice( rs.getString( "id" ) ) );
+                }
+            }
+        }
+        catch ( SQLException e )
+        {
+            throw new RuntimeException( "Erro ao recupera as classes no banco de dados.", e );
+        }
+    }
+}
@@ -91,12 +91,13 @@ public class Formatador
     }
 
     /**
-     * Formata um valor numérico, para exibição em tabela de resultados.
+     * Formata um valor numérico, para exibição em tabela de resultados. Sincronizado, pois {@link DecimalFormat}
+     * não é thread-safe e o formatador é compartilhado pelas execuções simultâneas.
      *
      * @param valor Valor numérico.
      * @return String formatada referente ao valor numérico.
      */
-    public String formatar( double valor )
+    public synchronized String formatar( double valor )
     {
         return fmt.format( valor );
     }
@@ -10,34 +10,6 @@ import java.util.*;
 public class FronteiraPareto
 {
 
-    /**
-     * Limite total de partículas não dominadas.
-     */
-    private final static int LIMITE_PARTICULAS = 100;
-
-    /**
-     * Verifica, e remove se necessário, partículas fornecidas caso seja maior que o limite definido.
-     *
-     * @param random     Gerador de números aleatórios.
-     * @param particulas Lista de partículas.
-     * @see #LIMITE_PARTICULAS
-     */
-    public static void verificarNumParticulas( Random random, Collection<Particula> particulas )
-    {
-        List<Particula> parts = new ArrayList<>( particulas );
-
-        Collections.sort( parts );
-
-        if ( LIMITE_PARTICULAS < parts.size() )
-        {
-            while ( LIMITE_PARTICULAS < parts.size() )
-            {
-                final int index = (int) Math.floor( random.nextDouble() * parts.size() );
-                parts.remove( index );
-            }
-        }
-    }
-
     /**
      * Adiciona partículas não dominadas.
      *
@@ -47,9 +19,22 @@ public class FronteiraPareto
      * as partículas dominadas. Se o resultado igual a 0, não há relação de dominância e partícula entra na
      * lista. Se resultado igual a -1 a partícula é por alguém na lista e não há alteração na lista de
      * partículas.
+     * @see ArquivoPareto#atualizar(Particula)
      */
     public static int atualizarParticulasNaoDominadas( Collection<Particula> particulas, Particula particula )
     {
+        // arquivo ordenado: verificação de dominância e inserção em tempo logarítmico
+        if ( particulas instanceof ArquivoPareto )
+        {
+            return ( (ArquivoPareto) particulas ).atualizar( particula );
+        }
+
+        // arquivo compartilhado entre threads: cópia publicada por compare-and-set
+        if ( particulas instanceof ArquivoParetoConcorrente )
+        {
+            return ( (ArquivoParetoConcorrente) particulas ).atualizar( particula );
+        }
+
         double[] pfit = particula.fitness();
 
         if ( particulas.isEmpty() )
@@ -107,6 +92,104 @@ public class FronteiraPareto
         }
     }
 
+    /**
+     * Ordenação rápida por não dominância (NSGA-II) para um número qualquer de objetivos, todos maximizados.
+     *
+     * @param fitness      Fitness de cada solução.
+     * @param numObjetivos Número de objetivos considerados (os primeiros valores de cada fitness).
+     * @return Fronteiras com os índices das soluções, sendo a primeira a fronteira não dominada.
+     */
+    public static List<List<Integer>> ordenarNaoDominadas( List<double[]> fitness, int numObjetivos )
+    {
+        final int n = fitness.size();
+
+        // soluções dominadas por cada solução e número de soluções que a dominam
+        final List<List<Integer>> dominadas = new ArrayList<>( n );
+        final int[] numDominantes = new int[n];
+
+        final List<List<Integer>> fronteiras = new ArrayList<>();
+        List<Integer> fronteira = new ArrayList<>();
+
+        for ( int i = 0; i < n; i++ )
+        {
+            dominadas.add( new ArrayList<Integer>() );
+        }
+
+        for ( int i = 0; i < n; i++ )
+        {
+            for ( int j = i + 1; j < n; j++ )
+            {
+                if ( dominar( fitness.get( i ), fitness.get( j ), numObjetivos ) )
+                {
+                    dominadas.get( i ).add( j );
+                    numDominantes[j] += 1;
+                }
+                else if ( dominar( fitness.get( j ), fitness.get( i ), numObjetivos ) )
+                {
+                    dominadas.get( j ).add( i );
+                    numDominantes[i] += 1;
+                }
+            }
+
+            if ( numDominantes[i] == 0 )
+            {
+                fronteira.add( i );
+            }
+        }
+
+        while ( !fronteira.isEmpty() )
+        {
+            fronteiras.add( fronteira );
+
+            final List<Integer> proxima = new ArrayList<>();
+
+            for ( int i : fronteira )
+            {
+                for ( int j : dominadas.get( i ) )
+                {
+                    numDominantes[j] -= 1;
+
+                    if ( numDominantes[j] == 0 )
+                    {
+                        proxima.add( j );
+                    }
+                }
+            }
+
+            fronteira = proxima;
+        }
+
+        return fronteiras;
+    }
+
+    /**
+     * Testa se a solução A domina a solução B considerando os primeiros objetivos, todos maximizados.
+     *
+     * @param afit         Fitness da solução A.
+     * @param bfit         Fitness da solução B.
+     * @param numObjetivos Número de objetivos.
+     * @return Retorna verdadeiro se a solução A domina a solução B.
+     */
+    private static boolean dominar( double[] afit, double[] bfit, int numObjetivos )
+    {
+        boolean melhor = false;
+
+        for ( int i = 0; i < numObjetivos; i++ )
+        {
+            if ( afit[i] < bfit[i] )
+            {
+                return false;
+            }
+
+            if ( afit[i] > bfit[i] )
+            {
+                melhor = true;
+            }
+        }
+
+        return melhor;
+    }
+
     /**
      * Verifica a dominância entre as partícula A e B.
      *
@@ -0,0 +1,144 @@
+package com.github.tsprates.pso;
+
+import java.util.Arrays;
+
+/**
+ * Operações sobre mapas de bits representados por arrays de <code>long</code>, onde cada bit corresponde a um
+ * registro da base de dados.
+ *
+ * @author thiago
+ */
+public final class MapaBits
+{
+
+    private MapaBits()
+    {
+    }
+
+    /**
+     * Cria um mapa de bits vazio.
+     *
+     * @param numBits Número de bits.
+     * @return Mapa de bits.
+     */
+    public static long[] criar( int numBits )
+    {
+        return new long[( numBits + 63 ) >>> 6];
+    }
+
+    /**
+     * Marca o bit informado.
+     *
+     * @param bits Mapa de bits.
+     * @param i    Índice do bit.
+     */
+    public static void marcar( long[] bits, int i )
+    {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Verifica se o bit informado está marcado.
+     *
+     * @param bits Mapa de bits.
+     * @param i    Índice do bit.
+     * @return Verdadeiro se o bit está marcado.
+     */
+    public static boolean testar( long[] bits, int i )
+    {
+        return ( bits[i >>> 6] & ( 1L << i ) ) != 0;
+    }
+
+    /**
+     * Desmarca todos os bits.
+     *
+     * @param bits Mapa de bits.
+     */
+    public static void limpar( long[] bits )
+    {
+        Arrays.fill( bits, 0L );
+    }
+
+    /**
+     * Conta os bits marcados.
+     *
+     * @param bits Mapa de bits.
+     * @return Número de bits marcados.
+     */
+    public static int contar( long[] bits )
+    {
+        int total = 0;
+
+        for ( long palavra : bits )
+        {
+            total += Long.bitCount( palavra );
+        }
+
+        return total;
+    }
+
+    /**
+     * Conta os bits marcados na interseção (AND) de dois mapas de bits.
+     *
+     * @param a Mapa de bits A.
+     * @param b Mapa de bits B.
+     * @return Número de bits marcados em ambos os mapas.
+     */
+    public static int contarInterseccao( long[] a, long[] b )
+    {
+        int total = 0;
+
+        for ( int i = 0, len = a.length; i < len; i++ )
+        {
+            total += Long.bitCount( a[i] & b[i] );
+        }
+
+        return total;
+    }
+
+    /**
+     * Conta os bits marcados na interseção (AND) de três mapas de bits.
+     *
+     * @param a Mapa de bits A.
+     * @param b Mapa de bits B.
+     * @param c Mapa de bits C.
+     * @return Número de bits marcados nos três mapas.
+     */
+    public static int contarInterseccao( long[] a, long[] b, long[] c )
+    {
+        int total = 0;
+
+        for ( int i = 0, len = a.length; i < len; i++ )
+        {
+            total += Long.bitCount( a[i] & b[i] & c[i] );
+        }
+
+        return total;
+    }
+
+    /**
+     * Retorna o complemento de um mapa de bits, limitado ao número de bits informado.
+     *
+     * @param bits    Mapa de bits.
+     * @param numBits Número de bits válidos.
+     * @return Novo mapa de bits com os bits invertidos.
+     */
+    public static long[] complemento( long[] bits, int numBits )
+    {
+        final long[] comp = new long[bits.length];
+
+        for ( int i = 0, len = bits.length; i < len; i++ )
+        {
+            comp[i] = ~bits[i];
+        }
+
+        final int resto = numBits & 63;
+
+        if ( resto != 0 )
+        {
+            comp[comp.length - 1] &= ( 1L << resto ) - 1;
+        }
+
+        return comp;
+    }
+}
@@ -0,0 +1,319 @@
+package com.github.tsprates.pso;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.util.FastMath;
+
+import java.util.Random;
+
+/**
+ * Operadores de movimento do PSO (velocidade, crossover e mutações) sobre as condições codificadas das partículas.
+ * <p>
+ * Os operadores trabalham no próprio array de posição da partícula e em buffers de trabalho reaproveitados, sem
+ * alocação por movimento após o aquecimento. Por isso, cada instância deve ser utilizada por uma única thread (no
+ * PSO, uma instância por enxame).
+ *
+ * @author thiago
+ * @see Condicao
+ */
+class Operadores
+{
+
+    private final static int[] LISTA_OPERADORES =
+                    { Condicao.MAIOR, Condicao.MAIOR_IGUAL, Condicao.MENOR, Condicao.MAIOR_IGUAL, Condicao.DIFERENTE,
+                                    Condicao.IGUAL };
+
+    private final static double[] PROB_OPERADORES = { 0.0, 0.22, 0.44, 0.66, 0.88, 0.94, 1.0 };
+
+    private final Random random;
+
+    private final int numCols;
+
+    private final double[] max;
+
+    private final double[] min;
+
+    private long[] posAnterior = new long[16];
+
+    private long[] novaPos = new long[16];
+
+    /**
+     * Construtor.
+     *
+     * @param random  Gerador de números aleatórios do enxame.
+     * @param numCols Número de colunas (atributos) da tabela.
+     * @param max     Valor máximo de cada coluna.
+     * @param min     Valor mínimo de cada coluna.
+     */
+    Operadores( Random random, int numCols, double[] max, double[] min )
+    {
+        this.random = random;
+        this.numCols = numCols;
+        this.max = max;
+        this.min = min;
+    }
+
+    /**
+     * Atualiza a posição da partícula: velocidade (perturbação) e crossover com o pbest e com o gbest. Ambos os
+     * crossovers partem da posição anterior ao movimento.
+     *
+     * @param part  Partícula.
+     * @param gbest Repositório (gbest) da classe da partícula.
+     * @param w     Probabilidade da perturbação.
+     * @param c1    Probabilidade do crossover com o pbest.
+     * @param c2    Probabilidade do crossover com o gbest.
+     */
+    void atualizarPosicao( Particula part, ArquivoParetoLeitura gbest, double w, double c1, double c2 )
+    {
+        final int partPosSize = part.numWhere();
+
+        posAnterior = garantirCapacidade( posAnterior, partPosSize );
+        System.arraycopy( part.posicao(), 0, posAnterior, 0, partPosSize );
+
+        // velocidade
+        if ( random.nextDouble() < w )
+        {
+            perturbar( part, true );
+        }
+
+        // pbest
+        if ( random.nextDouble() < c1 )
+        {
+            recombinar( part.getPbest(), part, posAnterior, partPosSize );
+        }
+
+        // gbest
+        if ( random.nextDouble() < c2 )
+        {
+            recombinar( gbest, part, posAnterior, partPosSize );
+        }
+    }
+
+    /**
+     * Operador de crossover.
+     *
+     * @param bestParts   Gbest ou Pbest.
+     * @param part        Partícula.
+     * @param partPos     Posição da partícula.
+     * @param partPosSize Tamanho do vetor posição da partícula.
+     */
+    void recombinar( ArquivoParetoLeitura bestParts, Particula part, long[] partPos, int partPosSize )
+    {
+        final Particula bestPart = Distancia.retornarParticulaMaisProxima( bestParts, part );
+
+        final long[] bestPos = bestPart.posicao();
+        final int bestPosSize = bestPart.numWhere();
+
+        novaPos = garantirCapacidade( novaPos, Math.max( bestPosSize, partPosSize ) );
+
+        int i = 0;
+
+        while ( i < bestPosSize )
+        {
+            if ( random.nextDouble() < 0.5 )
+            {
+                final int indexBest = (int) Math.floor( bestPosSize * random.nextDouble() );
+                novaPos[i] = bestPos[indexBest];
+            }
+            else
+            {
+                final int indexPart = (int) Math.floor( partPosSize * random.nextDouble() );
+                novaPos[i] = partPos[indexPart];
+            }
+
+            i++;
+        }
+
+        while ( i < partPosSize )
+        {
+            final int partSize = (int) Math.floor( partPosSize * random.nextDouble() );
+            novaPos[i] = partPos[partSize];
+            i++;
+        }
+
+        part.setPosicao( novaPos, i );
+    }
+
+    /**
+     * Perturbação da partícula.
+     *
+     * @param p       Partícula.
+     * @param mutUnif Mutação Uniforme.
+     */
+    void perturbar( Particula p, boolean mutUnif )
+    {
+        if ( random.nextDouble() < 0.5 )
+        {
+            p.adicionarCondicao( criarCondicao() );
+        }
+        else
+        {
+            final int index = (int) Math.floor( p.numWhere() * random.nextDouble() );
+            final long cond = p.posicao()[index];
+
+            // Artigo: Empirical Study of Particle Swarm Optimization Mutation Operators
+            if ( !Condicao.entreColunas( cond ) && random.nextDouble() < 0.5 )
+            {
+                final double newVal;
+
+                if ( mutUnif )
+                {
+                    newVal = mutUniforme( cond );
+                }
+                else
+                {
+                    newVal = mutGaussiana( cond );
+                }
+
+                p.substituirCondicao( index, Condicao.comValor( cond, newVal ) );
+            }
+            else
+            {
+                p.substituirCondicao( index, Condicao.comOperador( cond, mutOperador() ) );
+            }
+        }
+    }
+
+    /**
+     * Mutação Gaussiana.
+     *
+     * @param cond Condição entre coluna e valor.
+     * @return Novo valor da condição.
+     */
+    private double mutGaussiana( long cond )
+    {
+        final double valor = Condicao.valor( cond );
+        final int col = Condicao.coluna( cond );
+
+        try
+        {
+            // Proposta de Andrews (2006)
+            // Mutação gaussiana
+            final double alfa = 0.1 * ( max[col] - min[col] ) + Double.MIN_VALUE;
+            final double r = random.nextGaussian() * alfa;
+            return valor + r;
+        }
+        catch ( NotStrictlyPositiveException ex )
+        {
+            throw new RuntimeException( "Erro ao gerar distribuição gaussiana.", ex );
+        }
+    }
+
+    /**
+     * Mutação Uniforme.
+     *
+     * @param cond Condição entre coluna e valor.
+     * @return Novo valor da condição.
+     */
+    private double mutUniforme( long cond )
+    {
+        final double valor = Condicao.valor( cond );
+        final int col = Condicao.coluna( cond );
+
+        // Proposta de Michalewitz (1996)
+        // Mutação uniforme
+        if ( random.nextDouble() < 0.5 )
+        {
+            return valor + ( max[col] - valor ) * random.nextDouble();
+        }
+        else
+        {
+            return valor - ( valor - min[col] ) * random.nextDouble();
+        }
+    }
+
+    /**
+     * Mutação do Operador (Roleta).
+     *
+     * @return Retorna o código de um operador da tabela de operadores.
+     * @see #LISTA_OPERADORES
+     */
+    private int mutOperador()
+    {
+        final double r = random.nextDouble();
+        int indexOper = 0;
+
+        for ( int k = 1, len = LISTA_OPERADORES.length; k < len; k++ )
+        {
+            if ( PROB_OPERADORES[k - 1] >= r && PROB_OPERADORES[k] < r )
+            {
+                indexOper = k - 1;
+            }
+        }
+
+        return LISTA_OPERADORES[indexOper];
+    }
+
+    /**
+     * Retorna um conjunto de condições que compõe uma cláusula SQL WHERE.
+     *
+     * @return Condições codificadas da cláusula SQL WHERE (podem conter repetições).
+     */
+    long[] criarWhere()
+    {
+        final double r = (int) Math.floor( numCols * random.nextDouble() ) + 1;
+        final int maxWhere = (int) FastMath.ceil( FastMath.log( 2.0, r ) ) + 1;
+
+        final long[] conjWhere = new long[maxWhere];
+
+        for ( int i = 0; i < maxWhere; i++ )
+        {
+            conjWhere[i] = criarCondicao();
+        }
+
+        return conjWhere;
+    }
+
+    /**
+     * Cria uma condição da cláusula SQL WHERE, ou seja, parte da posição da partícula.
+     *
+     * @return Condição codificada.
+     * @see Condicao
+     */
+    long criarCondicao()
+    {
+        final int numOper = LISTA_OPERADORES.length;
+
+        final int colIndex = (int) Math.floor( numCols * random.nextDouble() );
+        final int operIndex = (int) Math.floor( numOper * random.nextDouble() );
+
+        final int oper = LISTA_OPERADORES[operIndex];
+
+        final double prob = 0.9;
+
+        // verifica se a condição será outro atributo ou valor numérico
+        if ( random.nextDouble() < prob )
+        {
+            final double newVal = ( max[colIndex] - min[colIndex] ) * random.nextDouble() + min[colIndex];
+
+            return Condicao.criar( colIndex, oper, newVal );
+        }
+        else
+        {
+            int index;
+            do
+            {
+                index = (int) Math.floor( numCols * random.nextDouble() );
+            }
+            while ( index == colIndex ); // diferentes colunas
+
+            return Condicao.criarEntreColunas( colIndex, oper, index );
+        }
+    }
+
+    /**
+     * Garante a capacidade de um buffer de trabalho, dobrando o seu tamanho quando necessário.
+     *
+     * @param buffer     Buffer.
+     * @param capacidade Capacidade mínima.
+     * @return O próprio buffer ou um novo buffer com a capacidade solicitada.
+     */
+    private static long[] garantirCapacidade( long[] buffer, int capacidade )
+    {
+        if ( capacidade <= buffer.length )
+        {
+            return buffer;
+        }
+
+        return new long[Math.max( capacidade, 2 * buffer.length )];
+    }
+}
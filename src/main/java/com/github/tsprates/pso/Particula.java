@@ -1,11 +1,8 @@
 package com.github.tsprates.pso;
 
-import org.apache.commons.lang3.StringUtils;
-
 import java.util.*;
 
 import static com.github.tsprates.pso.FronteiraPareto.atualizarParticulasNaoDominadas;
-import static com.github.tsprates.pso.FronteiraPareto.verificarNumParticulas;
 
 /**
  * Classe Partícula.
@@ -16,71 +13,261 @@ public class Particula
                 implements Comparable<Particula>
 {
 
+    /**
+     * Número máximo de alterações de condições registradas entre duas avaliações.
+     */
+    private static final int MAX_ALTERACOES = 8;
+
+    /**
+     * Marca das condições removidas no registro de alterações (o bit 63 não é utilizado pelas condições).
+     */
+    static final long REMOVIDA = Long.MIN_VALUE;
+
     private final Fitness calculadoraFitness;
 
-    private final Random random;
+    private final int limitePbest;
+
+    private long[] posicao = new long[0];
 
-    private Set<String> posicao;
+    private int numCondicoes;
 
-    private String strPos;
+    private long impressao;
+
+    private long[] alteracoes;
+
+    private int numAlteracoes = -1;
+
+    private Object estadoAvaliacao;
+
+    private volatile String strPos;
 
     private String classe;
 
     private double[] fitness;
 
-    private Set<Particula> pbest;
+    private ArquivoPareto pbest;
 
     /**
-     * Construtor.
+     * Construtor. A nova partícula não é avaliada: o fitness é calculado por {@link #avaliar()} ou por uma avaliação
+     * em lote ({@link Fitness#avaliar(List)}).
      *
-     * @param posicao Conjunto de cláusulas WHERE que representa a posição da partícula.
-     * @param classe  Rótulo (nicho) da partícula.
-     * @param fitness Calculadora de fitness.
-     * @param random  Gerador de números aleatórios.
+     * @param posicao     Condições codificadas da cláusula WHERE que representa a posição da partícula.
+     * @param classe      Rótulo (nicho) da partícula.
+     * @param fitness     Calculadora de fitness.
+     * @param limitePbest Número máximo de partículas do pbest.
      */
-    public Particula( Set<String> posicao, String classe, Fitness fitness, Random random )
+    public Particula( long[] posicao, String classe, Fitness fitness, int limitePbest )
     {
-        this.posicao = new TreeSet<>( posicao );
-        this.strPos = join( posicao );
+        copiarPosicao( posicao, posicao.length );
         this.classe = classe;
-        this.pbest = new TreeSet<>();
-        this.random = random;
+        this.limitePbest = limitePbest;
 
         this.calculadoraFitness = fitness;
-
-        final Particula that = this;
-        this.fitness = calculadoraFitness.calcular( that );
     }
 
     /**
-     * Construtor.
+     * Construtor de cópia. A posição e o fitness já calculado são copiados, sem nova avaliação. O pbest da cópia
+     * começa vazio.
      *
      * @param p Partícula.
      */
     public Particula( Particula p )
     {
-        this( p.posicao, p.classe, p.calculadoraFitness, p.random );
+        this.posicao = Arrays.copyOf( p.posicao, p.numCondicoes );
+        this.numCondicoes = p.numCondicoes;
+        this.impressao = p.impressao;
+        this.strPos = p.strPos;
+        this.classe = p.classe;
+        this.limitePbest = p.limitePbest;
+
+        this.calculadoraFitness = p.calculadoraFitness;
+        this.fitness = p.fitness == null ? null : p.fitness.clone();
     }
 
     /**
-     * Posição da partícula.
+     * Posição da partícula. Apenas as primeiras {@link #numWhere()} condições do array são válidas; o array é
+     * reaproveitado a cada nova posição e não deve ser alterado nem mantido por quem o consulta.
      *
-     * @return Lista de String WHERE de nova posição.
+     * @return Condições codificadas, ordenadas e distintas.
+     * @see Condicao
      */
-    public Set<String> posicao()
+    public long[] posicao()
     {
         return posicao;
     }
 
     /**
-     * Seta uma nova posição da partícula.
+     * Seta uma nova posição da partícula. As condições são copiadas para o array da partícula, que só é realocado
+     * quando a sua capacidade é excedida, e então ordenadas, removendo as repetidas.
      *
-     * @param posicao Coleção de Strings da nova posição.
+     * @param condicoes Condições codificadas da nova posição.
+     * @param num       Número de condições do array.
      */
-    public void setPosicao( Collection<String> posicao )
+    public void setPosicao( long[] condicoes, int num )
     {
-        this.posicao = new TreeSet<>( posicao );
-        this.strPos = join( this.posicao );
+        copiarPosicao( condicoes, num );
+    }
+
+    private void copiarPosicao( long[] condicoes, int num )
+    {
+        garantirCapacidade( num );
+
+        System.arraycopy( condicoes, 0, posicao, 0, num );
+
+        this.numCondicoes = Condicao.normalizar( posicao, num );
+        this.impressao = Condicao.impressao( posicao, numCondicoes );
+        this.numAlteracoes = -1;
+        this.strPos = null;
+    }
+
+    /**
+     * Adiciona uma condição à posição, mantendo a ordem. A impressão digital é atualizada em O(1).
+     *
+     * @param cond Condição codificada.
+     */
+    public void adicionarCondicao( long cond )
+    {
+        int i = Arrays.binarySearch( posicao, 0, numCondicoes, cond );
+
+        if ( i >= 0 )
+        {
+            return; // condição já existente
+        }
+
+        i = -( i + 1 );
+
+        garantirCapacidade( numCondicoes + 1 );
+
+        System.arraycopy( posicao, i, posicao, i + 1, numCondicoes - i );
+        posicao[i] = cond;
+        numCondicoes += 1;
+
+        this.impressao ^= Condicao.impressao( cond );
+        this.strPos = null;
+
+        registrarAlteracao( cond );
+    }
+
+    /**
+     * Substitui uma condição da posição. Caso a nova condição já exista, a condição substituída é apenas removida. A
+     * impressão digital é atualizada em O(1).
+     *
+     * @param indice Índice da condição, entre 0 e {@link #numWhere()} - 1.
+     * @param cond   Nova condição codificada.
+     */
+    public void substituirCondicao( int indice, long cond )
+    {
+        final long antiga = posicao[indice];
+
+        if ( antiga == cond )
+        {
+            return;
+        }
+
+        System.arraycopy( posicao, indice + 1, posicao, indice, numCondicoes - indice - 1 );
+        numCondicoes -= 1;
+
+        this.impressao ^= Condicao.impressao( antiga );
+        this.strPos = null;
+
+        registrarAlteracao( antiga | REMOVIDA );
+
+        adicionarCondicao( cond );
+    }
+
+    /**
+     * Registra a alteração de uma condição desde a última avaliação, permitindo a avaliação incremental. Acima do
+     * limite de alterações, o registro é descartado e a próxima avaliação é completa.
+     *
+     * @param alteracao Condição adicionada, ou removida quando marcada com {@link #REMOVIDA}.
+     */
+    private void registrarAlteracao( long alteracao )
+    {
+        if ( numAlteracoes < 0 )
+        {
+            return;
+        }
+
+        if ( numAlteracoes == MAX_ALTERACOES )
+        {
+            numAlteracoes = -1;
+            return;
+        }
+
+        if ( alteracoes == null )
+        {
+            alteracoes = new long[MAX_ALTERACOES];
+        }
+
+        alteracoes[numAlteracoes++] = alteracao;
+    }
+
+    /**
+     * Estado mantido pela calculadora de fitness para a avaliação incremental da posição, ou <code>null</code>.
+     *
+     * @return Estado da avaliação.
+     */
+    Object estadoAvaliacao()
+    {
+        return estadoAvaliacao;
+    }
+
+    /**
+     * Seta o estado da avaliação correspondente à posição atual, reiniciando o registro de alterações.
+     *
+     * @param estado Estado da avaliação.
+     */
+    void setEstadoAvaliacao( Object estado )
+    {
+        this.estadoAvaliacao = estado;
+        this.numAlteracoes = 0;
+    }
+
+    /**
+     * Número de alterações de condições desde que o estado da avaliação foi setado.
+     *
+     * @return Número de alterações ou -1 se a posição foi substituída (ou houve alterações demais) e o estado não
+     * corresponde mais à posição.
+     */
+    int numAlteracoes()
+    {
+        return numAlteracoes;
+    }
+
+    /**
+     * Retorna uma alteração registrada.
+     *
+     * @param i Índice da alteração, na ordem em que ocorreram.
+     * @return Condição adicionada, ou removida quando marcada com {@link #REMOVIDA}.
+     */
+    long alteracao( int i )
+    {
+        return alteracoes[i];
+    }
+
+    /**
+     * Garante a capacidade do array de posição, preservando as condições atuais.
+     *
+     * @param capacidade Capacidade mínima.
+     */
+    private void garantirCapacidade( int capacidade )
+    {
+        if ( capacidade > posicao.length )
+        {
+            posicao = Arrays.copyOf( posicao, Math.max( capacidade, 2 * posicao.length ) );
+        }
+    }
+
+    /**
+     * Impressão digital (64 bits) da posição, independente da ordem das condições. Identifica a regra em caches e na
+     * detecção de regras repetidas sem gerar a cláusula WHERE.
+     *
+     * @return Impressão digital da regra.
+     * @see Condicao#impressao(long[], int)
+     */
+    public long impressao()
+    {
+        return impressao;
     }
 
     /**
@@ -92,19 +279,39 @@ public class Particula
     }
 
     /**
-     * Retorna uma cláusula WHERE SQL correspondente a posição da partícula.
+     * Seta o fitness calculado externamente, por exemplo em uma avaliação em lote.
+     *
+     * @param fitness Fitness da posição atual.
+     * @see Fitness#avaliar(List)
+     */
+    void setFitness( double[] fitness )
+    {
+        this.fitness = fitness;
+    }
+
+    /**
+     * Retorna uma cláusula WHERE SQL correspondente a posição da partícula. A cláusula é gerada apenas quando
+     * solicitada.
      *
      * @return String WHERE SQL.
      */
     public String whereSql()
     {
-        return strPos;
+        String where = strPos;
+
+        if ( where == null )
+        {
+            where = calculadoraFitness.formatarWhere( posicao, numCondicoes );
+            strPos = where;
+        }
+
+        return where;
     }
 
     @Override
     public String toString()
     {
-        return strPos;
+        return whereSql();
     }
 
     /**
@@ -134,7 +341,7 @@ public class Particula
      */
     public int numWhere()
     {
-        return posicao().size();
+        return numCondicoes;
     }
 
     /**
@@ -148,23 +355,17 @@ public class Particula
     }
 
     /**
-     * Retorna cláusula WHERE.
-     *
-     * @param where Cláusula WHERE.
-     * @return String de cláusulas WHERE.
-     */
-    private String join( Set<String> where )
-    {
-        return "(" + StringUtils.join( where, ") AND (" ) + ")";
-    }
-
-    /**
-     * Retorna pbest.
+     * Retorna pbest. O arquivo é criado no primeiro acesso, pois as cópias mantidas nos repositórios não o utilizam.
      *
      * @return Partícula pbest.
      */
-    public Collection<Particula> getPbest()
+    public ArquivoPareto getPbest()
     {
+        if ( pbest == null )
+        {
+            pbest = new ArquivoPareto( limitePbest );
+        }
+
         return pbest;
     }
 
@@ -175,7 +376,12 @@ public class Particula
      */
     public void setPbest( List<Particula> pbest )
     {
-        this.pbest = new TreeSet<>( pbest );
+        this.pbest = new ArquivoPareto( limitePbest );
+
+        for ( Particula p : pbest )
+        {
+            this.pbest.atualizar( p );
+        }
     }
 
     /**
@@ -183,10 +389,8 @@ public class Particula
      */
     public void atualizarPbest()
     {
-        atualizarParticulasNaoDominadas( pbest, this );
-        this.pbest = new TreeSet<>( pbest );
-
-        verificarNumParticulas( random, this.pbest );
+        // o arquivo pbest é limitado pela distância de aglomeração
+        atualizarParticulasNaoDominadas( getPbest(), this );
     }
 
     @Override
@@ -251,12 +455,12 @@ public class Particula
     }
 
     /**
-     * Gera uma cópia da partícula.
+     * Gera uma cópia da partícula, reaproveitando o fitness já calculado.
      *
      * @return Partícula clonada.
      */
     public Particula clonar()
     {
-        return new Particula( posicao, classe, calculadoraFitness, random );
+        return new Particula( this );
     }
 }
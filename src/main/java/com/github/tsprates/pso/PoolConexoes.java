@@ -0,0 +1,278 @@
+package com.github.tsprates.pso;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool de tamanho fixo de conexões com o banco de dados. Avaliações simultâneas obtêm conexões distintas e, portanto,
+ * processos distintos do PostgreSQL, em vez de serializarem em uma única conexão; quando todas as conexões estão em
+ * uso, {@link #obter()} aguarda a devolução de alguma delas.
+ * <p>
+ * Cada conexão mantém um cache LRU de consultas preparadas, indexado pelo texto SQL, para as consultas de texto fixo
+ * (metadados e carga das classes). Consultas cujo texto contém a regra avaliada não devem ser mantidas no cache.
+ * <p>
+ * Tabelas temporárias são visíveis apenas na sessão que as criou: cada conexão registra as tabelas temporárias
+ * criadas nela, e {@link #descartarTemporaria(String)} as remove de todas as conexões, cada uma ao ser obtida
+ * novamente. Ao fechar o pool (ou em caso de queda da conexão), o próprio PostgreSQL remove as tabelas restantes.
+ *
+ * @author thiago
+ */
+public class PoolConexoes
+                implements AutoCloseable
+{
+
+    private final BlockingQueue<Conexao> livres;
+
+    private final Conexao[] conexoes;
+
+    /**
+     * Construtor.
+     *
+     * @param conexoes      Conexões do pool.
+     * @param maxPreparadas Número máximo de consultas preparadas em cache por conexão.
+     */
+    public PoolConexoes( List<Connection> conexoes, int maxPreparadas )
+    {
+        if ( conexoes.isEmpty() )
+        {
+            throw new RuntimeException( "O pool deve possuir ao menos uma conexão." );
+        }
+
+        this.conexoes = new Conexao[conexoes.size()];
+        this.livres = new ArrayBlockingQueue<>( conexoes.size() );
+
+        for ( int i = 0, size = conexoes.size(); i < size; i++ )
+        {
+            this.conexoes[i] = new Conexao( this, conexoes.get( i ), Math.max( 1, maxPreparadas ) );
+            this.livres.add( this.conexoes[i] );
+        }
+    }
+
+    /**
+     * Obtém uma conexão livre, aguardando caso todas estejam em uso. A conexão deve ser devolvida com
+     * {@link Conexao#close()}, de preferência em um bloco <code>try</code> com recursos.
+     *
+     * @return Conexão.
+     */
+    public Conexao obter()
+    {
+        final Conexao c;
+
+        try
+        {
+            c = livres.take();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrompido ao aguardar uma conexão com o banco de dados.", e );
+        }
+
+        try
+        {
+            c.removerDescartadas();
+        }
+        catch ( SQLException e )
+        {
+            c.close();
+            throw new RuntimeException( "Erro ao remover tabela temporária descartada.", e );
+        }
+
+        return c;
+    }
+
+    /**
+     * Descarta uma tabela temporária em todas as conexões que a criaram. A tabela é removida quando a conexão é obtida
+     * novamente, de modo que conexões em uso não são afetadas.
+     *
+     * @param nome Nome da tabela temporária.
+     */
+    public void descartarTemporaria( String nome )
+    {
+        for ( Conexao c : conexoes )
+        {
+            if ( c.temporarias.remove( nome ) )
+            {
+                c.descartadas.add( nome );
+            }
+        }
+    }
+
+    /**
+     * Retorna o número de conexões do pool.
+     *
+     * @return Número de conexões.
+     */
+    public int tamanho()
+    {
+        return conexoes.length;
+    }
+
+    /**
+     * Fecha as consultas preparadas e as conexões do pool.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            for ( Conexao c : conexoes )
+            {
+                c.fechar();
+            }
+        }
+        catch ( SQLException e )
+        {
+            throw new RuntimeException( "Erro ao fechar as conexões com o banco de dados.", e );
+        }
+    }
+
+    /**
+     * Conexão obtida do pool.
+     */
+    public static final class Conexao
+                    implements AutoCloseable
+    {
+
+        private final PoolConexoes pool;
+
+        private final Connection conexao;
+
+        private final Map<String, PreparedStatement> preparadas;
+
+        private final Set<String> temporarias = ConcurrentHashMap.newKeySet();
+
+        private final Set<String> descartadas = ConcurrentHashMap.newKeySet();
+
+        private Conexao( PoolConexoes pool, Connection conexao, final int maxPreparadas )
+        {
+            this.pool = pool;
+            this.conexao = conexao;
+
+            // ordem de acesso: a consulta menos usada recentemente é fechada ao exceder o limite
+            this.preparadas = new LinkedHashMap<String, PreparedStatement>( 16, 0.75f, true )
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( Map.Entry<String, PreparedStatement> maisAntiga )
+                {
+                    if ( size() <= maxPreparadas )
+                    {
+                        return false;
+                    }
+
+                    try
+                    {
+                        maisAntiga.getValue().close();
+                    }
+                    catch ( SQLException e )
+                    {
+                        throw new RuntimeException( "Erro ao fechar consulta preparada.", e );
+                    }
+
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * Retorna a conexão JDBC, para consultas que não devem ser mantidas em cache.
+         *
+         * @return Conexão JDBC.
+         */
+        public Connection conexao()
+        {
+            return conexao;
+        }
+
+        /**
+         * Retorna a consulta preparada do cache da conexão, preparando-a se necessário. A consulta pertence ao cache e
+         * não deve ser fechada; apenas os seus resultados.
+         *
+         * @param sql Texto SQL.
+         * @return Consulta preparada.
+         * @throws SQLException Erro ao preparar a consulta.
+         */
+        public PreparedStatement preparar( String sql ) throws SQLException
+        {
+            PreparedStatement ps = preparadas.get( sql );
+
+            if ( ps == null )
+            {
+                ps = conexao.prepareStatement( sql );
+                preparadas.put( sql, ps );
+            }
+
+            return ps;
+        }
+
+        /**
+         * Verifica se a tabela temporária já foi criada nesta conexão.
+         *
+         * @param nome Nome da tabela temporária.
+         * @return Verdadeiro se a tabela existe na sessão.
+         */
+        public boolean possuiTemporaria( String nome )
+        {
+            return temporarias.contains( nome );
+        }
+
+        /**
+         * Registra uma tabela temporária criada nesta conexão.
+         *
+         * @param nome Nome da tabela temporária.
+         * @see PoolConexoes#descartarTemporaria(String)
+         */
+        public void registrarTemporaria( String nome )
+        {
+            temporarias.add( nome );
+        }
+
+        private void removerDescartadas() throws SQLException
+        {
+            if ( descartadas.isEmpty() )
+            {
+                return;
+            }
+
+            try ( Statement st = conexao.createStatement() )
+            {
+                for ( String nome : descartadas )
+                {
+                    st.execute( "DROP TABLE IF EXISTS " + nome );
+                    descartadas.remove( nome );
+                }
+            }
+        }
+
+        /**
+         * Devolve a conexão ao pool.
+         */
+        @Override
+        public void close()
+        {
+            pool.livres.add( this );
+        }
+
+        private void fechar() throws SQLException
+        {
+            for ( PreparedStatement ps : preparadas.values() )
+            {
+                ps.close();
+            }
+
+            preparadas.clear();
+            conexao.close();
+        }
+    }
+}
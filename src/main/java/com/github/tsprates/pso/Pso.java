@@ -1,12 +1,24 @@
 package com.github.tsprates.pso;
 
-import org.apache.commons.lang3.math.NumberUtils;
-import org.apache.commons.math3.exception.NotStrictlyPositiveException;
 import org.apache.commons.math3.util.FastMath;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.sql.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
 import static com.github.tsprates.pso.Formatador.*;
 import static com.github.tsprates.pso.FronteiraPareto.*;
@@ -17,20 +29,15 @@ import static com.github.tsprates.pso.FronteiraPareto.*;
  * @author thiago
  */
 public class Pso
+                implements AutoCloseable
 {
 
-    private final static String[] LISTA_OPERADORES = { ">", ">=", "<", ">=", "!=", "=" };
-
-    private final static double[] PROB_OPERADORES = { 0.0, 0.22, 0.44, 0.66, 0.88, 0.94, 1.0 };
-
     private final static double TURBULENCIA = 3;
 
-    private final Connection conexao;
+    private final PoolConexoes conexoes;
 
     private final int NUM_K;
 
-    private final Random random;
-
     private final String tabela;
 
     private final Map<String, Integer> enxameNicho;
@@ -41,46 +48,49 @@ public class Pso
 
     private final Fitness fitness;
 
-    private final Formatador format;
+    private final ExecutorService executor;
 
-    private final int maxNumAvaliacao;
+    private final Semaphore limiteAvaliacoes;
 
-    private final String colClasse, colId;
+    private final boolean assincrono;
 
-    private final List<String> colunas = new ArrayList<>();
+    private final int numTrabalhadores;
 
-    private final Map<String, Double> max = new HashMap<>();
+    private final int numThreadsPastas;
 
-    private final Map<String, Double> min = new HashMap<>();
+    private final int limiteRepositorio, limitePbest;
 
-    private final Map<String, List<String>> mapaClasseId = new HashMap<>();
+    private final String filtroVisitadas;
 
-    private final Set<String> classes = new TreeSet<>();
+    private final long memoriaVisitadas;
+
+    private final Formatador format;
+
+    private final int maxNumAvaliacao;
 
-    private final Map<String, List<Particula>> repositorio = new HashMap<>();
+    private final String colClasse, colId;
 
-    private final List<String> regrasVisitadas = new ArrayList<>();
+    private final List<String> colunas = new ArrayList<>();
 
-    private List<Particula> particulas = new ArrayList<>();
+    private double[] max;
 
-    private List<List<String>> kpastas;
+    private double[] min;
 
-    private double[] valorMedioGlobal;
+    private final Map<String, List<String>> mapaClasseId = new HashMap<>();
 
-    private Map<String, double[]> valorMedioPorClasse;
+    private final Set<String> classes = new TreeSet<>();
 
     /**
      * Construtor.
      *
-     * @param conexao    Conexão com banco de dados.
+     * @param conexoes   Pool de conexões com banco de dados.
      * @param config     Configurações.
-     * @param r          Gerador de números aleatórios.
      * @param formatador Formatador de casas decimais.
      * @param numKpastas Número de K-Pastas.
      */
-    public Pso( Connection conexao, Properties config, Random r, Formatador formatador, int numKpastas )
+    public Pso( PoolConexoes conexoes, Properties config, Formatador formatador, int numKpastas )
     {
-        this.conexao = conexao;
+        this.conexoes = conexoes;
         this.tabela = config.getProperty( "tabela" );
         this.colClasse = config.getProperty( "saida" );
         this.colId = config.getProperty( "id" );
@@ -96,7 +106,44 @@ public class Pso
 
         this.NUM_K = numKpastas;
 
-        this.random = r;
+        // avaliação paralela do enxame: uma thread virtual por partícula, com limite de avaliações simultâneas, ou
+        // pool com roubo de tarefas; as consultas simultâneas ao banco são limitadas pelo pool de conexões
+        final int maxVirtuais = Integer.valueOf( config.getProperty( "threads.virtuais", "0" ) );
+        final int numThreads = Integer.valueOf( config.getProperty( "threads", "1" ) );
+
+        if ( maxVirtuais > 0 )
+        {
+            this.executor = Executors.newVirtualThreadPerTaskExecutor();
+            this.limiteAvaliacoes = new Semaphore( maxVirtuais );
+        }
+        else
+        {
+            this.executor = numThreads > 1 ? new ForkJoinPool( numThreads ) : null;
+            this.limiteAvaliacoes = null;
+        }
+
+        // modo síncrono (avaliação do enxame a cada iteração) ou assíncrono (avaliação em fluxo contínuo)
+        final String modo = config.getProperty( "modo", "sincrono" );
+
+        if ( !"sincrono".equalsIgnoreCase( modo ) && !"assincrono".equalsIgnoreCase( modo ) )
+        {
+            throw new RuntimeException( "Modo de execução inválido: " + modo );
+        }
+
+        this.assincrono = "assincrono".equalsIgnoreCase( modo );
+        this.numTrabalhadores = Math.max( 1, numThreads );
+
+        // número de k-pastas treinadas simultaneamente
+        this.numThreadsPastas = Integer.valueOf( config.getProperty( "threads.pastas", "1" ) );
+
+        // limite de partículas não dominadas do repositório gbest e do pbest de cada partícula
+        final String limitePadrao = String.valueOf( ArquivoPareto.LIMITE_PADRAO );
+        this.limiteRepositorio = Integer.valueOf( config.getProperty( "repositorio.limite", limitePadrao ) );
+        this.limitePbest = Integer.valueOf( config.getProperty( "pbest.limite", limitePadrao ) );
+
+        // conjunto de regras visitadas pela busca local de cada k-pasta: tipo e memória máxima (MB)
+        this.filtroVisitadas = config.getProperty( "visitadas.filtro", "hash" );
+        this.memoriaVisitadas = Long.valueOf( config.getProperty( "visitadas.memoria", "8" ) ) * 1024 * 1024;
 
         carregarColunasTabela();
         carregarClasses();
@@ -105,81 +152,161 @@ public class Pso
 
         this.enxameNicho = dividirNichoEnxame();
 
-        criarRepositorioGbest();
+        this.fitness = criarFitness( config );
+        this.fitness.setCacheFitness( Boolean.valueOf( config.getProperty( "cache.fitness", "true" ) ) );
+        this.fitness.setContarAcertosCache( Boolean.valueOf( config.getProperty( "cache.contar_acertos", "true" ) ) );
+    }
+
+    /**
+     * Cria a calculadora de fitness conforme o tipo de avaliação definido nas configurações ("sql" ou "memoria").
+     *
+     * @param config Configurações.
+     * @return Calculadora de fitness.
+     */
+    private Fitness criarFitness( Properties config )
+    {
+        final String avaliacao = config.getProperty( "avaliacao", "sql" );
 
-        this.fitness = new Fitness( conexao, colId, tabela, mapaClasseId );
+        if ( "memoria".equalsIgnoreCase( avaliacao ) )
+        {
+            final long memoriaCache = Long.valueOf( config.getProperty( "cache.condicoes", "64" ) ) * 1024 * 1024;
+            return new FitnessMemoria( conexoes, colId, tabela, colunas, mapaClasseId, memoriaCache );
+        }
+        else if ( "sql".equalsIgnoreCase( avaliacao ) )
+        {
+            final boolean agregar = Boolean.valueOf( config.getProperty( "sql.agregado", "true" ) );
+            final int tamanhoLote = Integer.valueOf( config.getProperty( "sql.lote", "100" ) );
+            return new FitnessSql( conexoes, colId, colClasse, tabela, colunas, mapaClasseId, agregar, tamanhoLote );
+        }
+        else
+        {
+            throw new RuntimeException( "Tipo de avaliação inválido: " + avaliacao );
+        }
     }
 
     /**
-     * Carrega PSO.
+     * Carrega PSO. Cada execução possui o seu próprio gerador de números aleatórios e contexto de avaliação, de modo
+     * que execuções independentes podem ser realizadas simultaneamente.
+     *
+     * @param semente Semente do gerador de números aleatórios da execução.
+     * @param saida   Saída dos resultados.
+     * @return Resultado da execução.
      */
-    public void carregar()
+    public ResultadoExecucao carregar( long semente, PrintStream saida )
     {
         final long tempoInicial = System.nanoTime();
 
+        final Random random = new Random( semente );
+
         // validação cruzada
-        kpastas = criarKpastas();
-        fitness.setKPastas( kpastas );
+        final List<List<String>> kpastas = criarKpastas( random );
+        final Fitness fitnessExecucao = fitness.criarExecucao( kpastas );
 
         final Map<String, double[]> kpastasClasse = criarValorMedioKpastas();
 
+        // as sementes de cada k-pasta são geradas em ordem, de modo que o resultado não depende do número de
+        // k-pastas treinadas simultaneamente
+        final long[] sementes = new long[NUM_K];
+
         for ( int i = 0; i < NUM_K; i++ )
         {
-            fitness.setK( i );
-
-            particulas = criarEnxameInicial();
-
-            resetRepositorioGbest();
-
-            regrasVisitadas.clear();
+            sementes[i] = random.nextLong();
+        }
 
-            System.out.printf( "\nPartição: %d \n", i + 1 );
-            System.out.printf( "\nTeste: %s \n", kpastas.get( i ) );
+        try
+        {
+            treinarPastas( fitnessExecucao, sementes, kpastasClasse, saida );
+        }
+        finally
+        {
+            fitnessExecucao.encerrar();
+        }
 
-            fitness.resetNumAvaliacao();
+        calcularValorMedio( kpastasClasse );
 
-            while ( fitness.numAvaliacao() < maxNumAvaliacao )
-            {
-                for ( int indexPart = 0; indexPart < numParts; indexPart++ )
-                {
-                    Particula particula = particulas.get( indexPart );
+        // média das melhores efetividades
+        final ResultadoExecucao resultado =
+                        new ResultadoExecucao( kpastas, valorMedioGlobalKpastas( kpastasClasse ),
+                                               new TreeMap<>( kpastasClasse ) );
 
-                    // gbest
-                    atualizarRepositorioGbest( particula );
+        final long tempoFinal = System.nanoTime();
 
-                    // pbest
-                    particula.atualizarPbest();
+        saida.printf( "\nTempo decorrido: %s\n", formatarTempoDecorrido( tempoInicial, tempoFinal ) );
 
-                    // operador de turbulência
-                    aplicarTurbulencia( indexPart );
+        return resultado;
+    }
 
-                    // atualiza posição da partícula
-                    atualizarPosicao( indexPart );
-                }
+    /**
+     * Treina e testa cada k-pasta, acumulando as melhores efetividades por classe. Quando configurado, as k-pastas
+     * são treinadas simultaneamente; as saídas e os resultados são então combinados na ordem das k-pastas.
+     *
+     * @param fitnessExecucao Calculadora de fitness da execução.
+     * @param sementes        Sementes do gerador de números aleatórios de cada k-pasta.
+     * @param kpastasClasse   Mapa K-Pastas para cada classe.
+     * @param saida           Saída dos resultados.
+     */
+    private void treinarPastas( Fitness fitnessExecucao, long[] sementes, Map<String, double[]> kpastasClasse,
+                                PrintStream saida )
+    {
+        if ( numThreadsPastas <= 1 )
+        {
+            for ( int i = 0; i < NUM_K; i++ )
+            {
+                final Enxame enxame = new Enxame( fitnessExecucao, i, sementes[i], saida );
 
-                buscaLocal();
+                // seleciona as melhores efetividade
+                selecionarEfetividade( enxame.treinar(), kpastasClasse );
             }
 
-            mostrarTreinamento();
+            return;
+        }
 
-            // Fase de teste
-            Map<String, List<double[]>> teste = fitness.testar( repositorio );
-            mostrarTeste( teste );
+        final ExecutorService executorPastas = Executors.newFixedThreadPool( numThreadsPastas );
 
-            // seleciona as melhores efetividade
-            selecionarEfetividade( teste, kpastasClasse );
-        }
+        try
+        {
+            final List<Future<Map<String, List<double[]>>>> tarefas = new ArrayList<>();
+            final List<ByteArrayOutputStream> saidas = new ArrayList<>();
 
-        calcularValorMedio( kpastasClasse );
+            for ( int i = 0; i < NUM_K; i++ )
+            {
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                final Enxame enxame = new Enxame( fitnessExecucao, i, sementes[i], new PrintStream( buffer, true ) );
 
-        valorMedioPorClasse = new TreeMap<>( kpastasClasse );
+                saidas.add( buffer );
+                tarefas.add( executorPastas.submit( new Callable<Map<String, List<double[]>>>()
+                {
+                    @Override
+                    public Map<String, List<double[]>> call()
+                    {
+                        return enxame.treinar();
+                    }
+                } ) );
+            }
 
-        // média das melhores efetividades
-        valorMedioGlobal = valorMedioGlobalKpastas( kpastasClasse );
+            for ( int i = 0; i < NUM_K; i++ )
+            {
+                final Map<String, List<double[]>> teste = tarefas.get( i ).get();
 
-        final long tempoFinal = System.nanoTime();
+                saida.print( saidas.get( i ).toString() );
 
-        System.out.printf( "\nTempo decorrido: %s\n", formatarTempoDecorrido( tempoInicial, tempoFinal ) );
+                // seleciona as melhores efetividade
+                selecionarEfetividade( teste, kpastasClasse );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Treinamento das k-pastas interrompido.", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new RuntimeException( "Erro no treinamento paralelo das k-pastas.", e.getCause() );
+        }
+        finally
+        {
+            executorPastas.shutdownNow();
+        }
     }
 
     /**
@@ -275,797 +402,886 @@ public class Pso
     }
 
     /**
-     * Mostra tabela de avaliação (teste).
-     *
-     * @param teste Lista de fitness encontrados por classe.
+     * Cria um mapa de classe por cada ID de registro da base de dados.
      */
-    private void mostrarTeste( Map<String, List<double[]>> teste )
+    private void carregarClassePorId()
     {
-        System.out.println( "\n\nFase de teste:\n" );
+        for ( String cl : classes )
+        {
+            mapaClasseId.put( cl, new ArrayList<String>() );
+        }
 
-        System.out.print( TAB_CABECALHO );
-        System.out.println();
+        final String sql = "SELECT " + colClasse + ", " + colId + " AS col_id " + "FROM " + tabela;
 
-        for ( String cl : classes )
+        try ( PoolConexoes.Conexao c = conexoes.obter(); ResultSet rs = c.preparar( sql ).executeQuery() )
         {
-            List<double[]> r = teste.get( cl );
-            List<Particula> rep = repositorio.get( cl );
+            while ( rs.next() )
+            {
+                String coluna = rs.getString( colClasse );
+                mapaClasseId.get( coluna ).add( rs.getString( "col_id" ) );
+            }
 
-            for ( int i = 0, l = r.size(); i < l; i++ )
+            if ( mapaClasseId.size() > numParts )
             {
-                final double[] fit = r.get( i );
-                mostrarLinhaTabela( cl, fit, rep.get( i ).whereSql() );
+                throw new RuntimeException( "Tamanho do enxame é insuficiente." );
             }
         }
-
-        System.out.println();
+        catch ( SQLException e )
+        {
+            throw new RuntimeException( "Erro ao mapear nome das colunas que correspondem as saídas.", e );
+        }
     }
 
     /**
-     * Mostra tabela de resultados do treinamento.
+     * Recupera as colunas da tabela.
      */
-    private void mostrarTreinamento()
+    private void carregarColunasTabela()
     {
-        System.out.println( "\n\nFase de treinamento:\n" );
+        final ResultSetMetaData metadata;
 
-        System.out.println( TAB_CABECALHO );
+        final String sql = "SELECT * " + "FROM " + tabela + " " + "LIMIT 1";
 
-        final Map<String, List<Particula>> solucoes = new TreeMap<>( repositorio );
+        int numCol;
 
-        for ( Entry<String, List<Particula>> parts : solucoes.entrySet() )
+        try ( PoolConexoes.Conexao c = conexoes.obter(); ResultSet rs = c.preparar( sql ).executeQuery() )
         {
-            String classe = parts.getKey();
-            List<Particula> listaParts = parts.getValue();
-
-            Collections.sort( listaParts );
+            metadata = rs.getMetaData();
+            numCol = metadata.getColumnCount();
 
-            for ( Particula part : listaParts )
+            for ( int i = 0; i < numCol; i++ )
             {
-                final double[] fit = part.fitness();
-                mostrarLinhaTabela( classe, fit, part.whereSql() );
+                String coluna = metadata.getColumnName( i + 1 );
+
+                // retorna os atributos da base de dados
+                // sem o ID e a respectiva classe
+                if ( !colClasse.equalsIgnoreCase( coluna ) && !colId.equalsIgnoreCase( coluna ) )
+                {
+                    colunas.add( coluna );
+                }
             }
         }
+        catch ( SQLException e )
+        {
+            throw new RuntimeException( "Erro ao recuperar nome das colunas.", e );
+        }
     }
 
     /**
-     * Monta uma linha da tabela de resultado do algoritmo.
-     *
-     * @param classe   Nicho do enxame.
-     * @param fo       Funções objetivo.
-     * @param whereSql Cláusula WHERE.
+     * Retorna as respectivas classes da base de dados.
      */
-    private void mostrarLinhaTabela( String classe, double[] fo, String whereSql )
+    private void carregarClasses()
     {
-        String compl = format.formatar( fo[0] );
-        String efet = format.formatar( fo[1] );
-        String acur = format.formatar( fo[2] );
-
-        System.out.printf( TAB_LINHA, formatarClasse( classe ), compl, efet, acur, whereSql );
-    }
+        final String sql =
+                        "SELECT DISTINCT " + colClasse + " " + "FROM " + tabela + " " + "ORDER BY " + colClasse
+                                        + " ASC";
 
-    /**
-     * Operador de turbulência.
-     *
-     * @param indexPart Índice da partícula.
-     */
-    private void aplicarTurbulencia( int indexPart )
-    {
-        if ( ( indexPart % TURBULENCIA ) == 0 )
+        try ( PoolConexoes.Conexao c = conexoes.obter(); ResultSet rs = c.preparar( sql ).executeQuery() )
         {
-            perturbar( particulas.get( indexPart ), true );
+            while ( rs.next() )
+            {
+                classes.add( rs.getString( colClasse ) );
+            }
         }
-        else if ( ( indexPart % TURBULENCIA ) == 1 )
+        catch ( SQLException e )
         {
-            perturbar( particulas.get( indexPart ), false );
+            throw new RuntimeException( "Erro ao carregar as classes de saídas no banco de dados.", e );
         }
     }
 
     /**
-     * Atualiza posição.
-     *
-     * @param indexPart Índice da partícula.
+     * Recupera os máximos e mínimos das colunas na base de dados.
      */
-    private void atualizarPosicao( int indexPart )
+    private void carregarMaxMinColunasTabela()
     {
-        final Particula part = particulas.get( indexPart );
-
-        final List<String> partPos = new ArrayList<>( part.posicao() );
-        final int partPosSize = partPos.size();
+        // faixa de valores de cada coluna
+        final StringBuilder sb = new StringBuilder();
 
-        // velocidade
-        if ( random.nextDouble() < w )
+        for ( String entrada : colunas )
         {
-            perturbar( part );
+            sb.append( ", " ).append( "max(" ).append( entrada ).append( ")" ).append( ", " ).append( "min(" ).append(
+                            entrada ).append( ")" );
         }
 
-        // pbest
-        if ( random.nextDouble() < c1 )
-        {
-            final List<Particula> pbest = new ArrayList<>( part.getPbest() );
-            recombinar( pbest, part, partPos, partPosSize );
-        }
+        final String sql = "SELECT " + sb.toString().substring( 1 ) + " FROM " + tabela;
 
-        // gbest
-        if ( random.nextDouble() < c2 )
+        try ( PoolConexoes.Conexao c = conexoes.obter(); ResultSet rs = c.preparar( sql ).executeQuery() )
         {
-            final List<Particula> gbest = repositorio.get( part.classe() );
-            recombinar( gbest, part, partPos, partPosSize );
-        }
-
-        // avaliação da nova partícula
-        part.avaliar();
-    }
 
-    /**
-     * Busca Local.
-     */
-    private void buscaLocal()
-    {
-        for ( String cl : classes )
-        {
-            final List<Particula> rep = repositorio.get( cl );
+            max = new double[colunas.size()];
+            min = new double[colunas.size()];
 
-            for ( int i = 0; i < rep.size(); i++ )
+            while ( rs.next() )
             {
-                final Particula p = rep.get( i );
-                buscaLocalPareto( p );
+                for ( int i = 0, size = colunas.size(); i < size; i++ )
+                {
+                    max[i] = rs.getDouble( 2 * i + 1 );
+                    min[i] = rs.getDouble( 2 * i + 2 );
+
+                    if ( !Condicao.representavel( max[i] ) || !Condicao.representavel( min[i] ) )
+                    {
+                        throw new RuntimeException( "Valores da coluna " + colunas.get( i )
+                                                                    + " excedem a faixa representável das regras." );
+                    }
+                }
             }
         }
+        catch ( SQLException e )
+        {
+            throw new RuntimeException( "Erro ao buscar (min, max) no banco de dados.", e );
+        }
     }
 
     /**
-     * Busca Local Pareto.
+     * Faz a divisão do total da população em nichos similares para cada classe do problema.
      *
-     * @param p Partícula.
+     * @return População de cada nicho.
      */
-    private void buscaLocalPareto( Particula p )
+    private Map<String, Integer> dividirNichoEnxame()
     {
-        final String cl = p.classe();
-        final List<Particula> rep = repositorio.get( cl );
+        final int numClasses = classes.size();
+        final int numPopNicho = numParts / numClasses;
 
-        final Particula pl = p.clonar();
+        final Map<String, Integer> nicho = new HashMap<>();
 
-        final double len = FastMath.log( colunas.size() ) + 1;
+        int resto = numParts % numClasses;
 
-        for ( int i = 0; i < len; i++ )
+        for ( String cl : classes )
         {
-            perturbar( pl, false );
-
-            final String where = pl.whereSql();
-
-            if ( regrasVisitadas.contains( where ) )
+            if ( resto > 0 )
             {
-                continue;
+                nicho.put( cl, numPopNicho + 1 );
+                resto -= 1;
             }
             else
             {
-                regrasVisitadas.add( where );
-            }
-
-            pl.avaliar();
-
-            if ( verificarDominanciaEntre( pl, p ) >= 0 )
-            {
-                atualizarParticulasNaoDominadas( rep, pl );
-                break;
+                nicho.put( cl, numPopNicho );
             }
         }
+
+        return nicho;
     }
 
     /**
-     * Operador de crossover.
+     * Retorna as classes do enxame.
      *
-     * @param bestParts   Gbest ou Pbest.
-     * @param part        Partícula.
-     * @param partPos     Posição da partícula.
-     * @param partPosSize Tamanho do vetor posição da partícula.
+     * @return Classes ou nichos do enxame.
      */
-    private void recombinar( List<Particula> bestParts, Particula part, List<String> partPos, int partPosSize )
+    public Set<String> classes()
     {
-        final Particula bestPart = Distancia.retornarParticulaMaisProxima( bestParts, part );
-
-        final List<String> bestPos = new ArrayList<>( bestPart.posicao() );
-        final int bestPosSize = bestPos.size();
-
-        final List<String> newPos = new ArrayList<>();
-
-        int i = 0;
-
-        while ( i < bestPosSize )
-        {
-            if ( random.nextDouble() < 0.5 )
-            {
-                final int indexBest = (int) Math.floor( bestPosSize * random.nextDouble() );
-                newPos.add( bestPos.get( indexBest ) );
-            }
-            else
-            {
-                final int indexPart = (int) Math.floor( partPosSize * random.nextDouble() );
-                newPos.add( partPos.get( indexPart ) );
-            }
-
-            i++;
-        }
+        return classes;
+    }
 
-        while ( i < partPosSize )
+    /**
+     * Encerra o executor da avaliação paralela do enxame.
+     */
+    @Override
+    public void close()
+    {
+        if ( executor != null )
         {
-            final int partSize = (int) Math.floor( partPosSize * random.nextDouble() );
-            newPos.add( partPos.get( partSize ) );
-            i++;
+            executor.shutdownNow();
         }
-
-        part.setPosicao( newPos );
     }
 
     /**
-     * Perturbação da partícula.
+     * Validação Cruzada K-Pastas.
      *
-     * @param p       Partícula.
-     * @param mutUnif Mutação Uniforme.
+     * @param random Gerador de números aleatórios.
      */
-    private void perturbar( Particula p, boolean mutUnif )
+    private List<List<String>> criarKpastas( Random random )
     {
-        final List<String> pos = new ArrayList<>( p.posicao() );
+        final List<List<String>> kpastasTemp = new ArrayList<>();
 
-        if ( random.nextDouble() < 0.5 )
+        for ( int i = 0; i < NUM_K; i++ )
         {
-            pos.add( criarCondicao() );
+            kpastasTemp.add( new ArrayList<String>() );
         }
-        else
-        {
-            final int index = (int) Math.floor( pos.size() * random.nextDouble() );
-            final String[] termo = pos.get( index ).split( " " );
 
-            String oper = termo[1];
-            String val = termo[2];
+        // Embaralha registros
+        final Map<String, List<String>> temp = new HashMap<>();
+        final int tempSize = randMapaClasseId( temp, random );
+
+        final List<String> listaClasses = new ArrayList<>( classes );
+
+        int k = 0;
 
-            // Artigo: Empirical Study of Particle Swarm Optimization Mutation Operators
-            if ( NumberUtils.isNumber( termo[2] ) && random.nextDouble() < 0.5 )
+        for ( int i = 0; i < tempSize; )
+        {
+            for ( int j = 0, size = listaClasses.size(); j < size; )
             {
-                final double newVal;
+                String index = listaClasses.get( j );
+                List<String> ids = temp.get( index );
 
-                if ( mutUnif )
+                while ( k < NUM_K )
                 {
-                    newVal = mutUniforme( termo );
-                }
-                else
-                {
-                    newVal = mutGaussiana( termo );
+                    if ( !ids.isEmpty() )
+                    {
+                        String id = ids.remove( 0 );
+                        kpastasTemp.get( k ).add( id );
+                        i++;
+                        k++;
+                    }
+                    else
+                    {
+                        break;
+                    }
                 }
 
-                val = formatarValorNumericoWhere( newVal );
-            }
-            else
-            {
-                oper = mutOperador();
+                if ( k == NUM_K )
+                {
+                    k = 0;
+                }
+                else
+                {
+                    j++;
+                }
             }
-
-            pos.set( index, formatarCondicaoWhere( termo[0], oper, val ) );
         }
 
-        p.setPosicao( pos );
+        return kpastasTemp;
     }
 
     /**
-     * Mutação Gaussiana.
+     * Cria um clone com elementos aleatórios do mapa classe {@link #mapaClasseId} e retorna o número total de
+     * elementos.
      *
-     * @param termo
-     * @return
+     * @param map    Mapa de classe por ID.
+     * @param random Gerador de números aleatórios.
+     * @return Número total de registro do mapa.
      */
-    private double mutGaussiana( String[] termo )
+    private int randMapaClasseId( Map<String, List<String>> map, Random random )
     {
-        final double valor = Double.parseDouble( termo[2] );
+        int total = 0;
 
-        try
-        {
-            // Proposta de Andrews (2006)
-            // Mutação gaussiana
-            final double alfa = 0.1 * ( max.get( termo[0] ) - min.get( termo[0] ) ) + Double.MIN_VALUE;
-            final double r = random.nextGaussian() * alfa;
-            return valor + r;
-        }
-        catch ( NotStrictlyPositiveException ex )
+        // Deep cloning
+        for ( String cl : classes )
         {
-            throw new RuntimeException( "Erro ao gerar distribuição gaussiana.", ex );
+            map.put( cl, new ArrayList<String>() );
+
+            List<String> mapaClasseTemp = mapaClasseId.get( cl );
+
+            for ( int i = 0, size = mapaClasseTemp.size(); i < size; i++ )
+            {
+                map.get( cl ).add( mapaClasseTemp.get( i ) );
+                total++;
+            }
+
+            Collections.shuffle( map.get( cl ), random );
         }
+
+        return total;
     }
 
     /**
-     * Mutação Uniforme.
-     *
-     * @param termo
-     * @return
+     * Enxame de uma k-pasta. Mantém o estado do treinamento (partículas, repositório gbest e regras visitadas), o
+     * gerador de números aleatórios e o contexto de avaliação próprios, permitindo treinar as k-pastas
+     * simultaneamente. O repositório gbest de cada nicho pode ser lido e atualizado por várias threads sem bloqueios
+     * ({@link ArquivoParetoConcorrente}).
      */
-    private double mutUniforme( String[] termo )
+    private class Enxame
     {
-        final double valor = Double.parseDouble( termo[2] );
 
-        // Proposta de Michalewitz (1996)
-        // Mutação uniforme
-        if ( random.nextDouble() < 0.5 )
+        private final int indice;
+
+        private final Fitness fitness;
+
+        private final Operadores operadores;
+
+        private final PrintStream saida;
+
+        private final Map<String, ArquivoParetoConcorrente> repositorio = new HashMap<>();
+
+        private final RegrasVisitadas regrasVisitadas = RegrasVisitadas.criar( filtroVisitadas, memoriaVisitadas );
+
+        private List<Particula> particulas = new ArrayList<>();
+
+        /**
+         * Construtor.
+         *
+         * @param fitnessExecucao Calculadora de fitness da execução.
+         * @param indice          Índice da k-pasta.
+         * @param semente         Semente do gerador de números aleatórios.
+         * @param saida           Saída dos resultados.
+         */
+        Enxame( Fitness fitnessExecucao, int indice, long semente, PrintStream saida )
         {
-            return valor + ( max.get( termo[0] ) - valor ) * random.nextDouble();
+            this.indice = indice;
+            this.fitness = fitnessExecucao.criarPasta( indice );
+            this.fitness.setLimiteAvaliacoes( maxNumAvaliacao );
+            this.operadores = new Operadores( new Random( semente ), colunas.size(), max, min );
+            this.saida = saida;
+
+            criarRepositorioGbest();
         }
-        else
+
+        /**
+         * Treina o enxame e realiza a fase de teste.
+         *
+         * @return Fitness da fase de teste por classe.
+         */
+        Map<String, List<double[]>> treinar()
         {
-            return valor - ( valor - min.get( termo[0] ) ) * random.nextDouble();
-        }
-    }
+            particulas = criarEnxameInicial();
 
-    /**
-     * Mutação do Operador (Roleta).
-     *
-     * @return Retorna um operador da tabela de operadores.
-     * @see #LISTA_OPERADORES
-     */
-    private String mutOperador()
-    {
-        final double r = random.nextDouble();
-        int indexOper = 0;
+            resetRepositorioGbest();
 
-        for ( int k = 1, len = LISTA_OPERADORES.length; k < len; k++ )
-        {
-            if ( PROB_OPERADORES[k - 1] >= r && PROB_OPERADORES[k] < r )
+            saida.printf( "\nPartição: %d \n", indice + 1 );
+            saida.printf( "\nTeste: %s \n", fitness.kpastaAtual() );
+
+            fitness.resetNumAvaliacao();
+
+            if ( assincrono )
             {
-                indexOper = k - 1;
+                treinarAssincrono();
+            }
+            else
+            {
+                treinarSincrono();
             }
-        }
 
-        return LISTA_OPERADORES[indexOper];
-    }
+            saida.printf( "\nAvaliações: %d\n", fitness.numAvaliacao() );
 
-    /**
-     * Perturbação da partícula (mutação uniforme).
-     *
-     * @param p Partícula.
-     */
-    private void perturbar( Particula p )
-    {
-        perturbar( p, true );
-    }
+            mostrarTreinamento();
 
-    /**
-     * Cria um mapa de classe por cada ID de registro da base de dados.
-     */
-    private void carregarClassePorId()
-    {
-        for ( String cl : classes )
-        {
-            mapaClasseId.put( cl, new ArrayList<String>() );
-        }
+            // Fase de teste
+            Map<String, List<double[]>> teste = fitness.testar( repositorio );
+            mostrarTeste( teste );
 
-        final String sql = "SELECT " + colClasse + ", " + colId + " AS col_id " + "FROM " + tabela;
+            final String estatisticas = fitness.estatisticas();
 
-        try ( PreparedStatement ps = conexao.prepareStatement( sql ); ResultSet rs = ps.executeQuery() )
-        {
-            while ( rs.next() )
+            if ( !estatisticas.isEmpty() )
             {
-                String coluna = rs.getString( colClasse );
-                mapaClasseId.get( coluna ).add( rs.getString( "col_id" ) );
+                saida.printf( "%s\n", estatisticas );
             }
 
-            if ( mapaClasseId.size() > numParts )
-            {
-                throw new RuntimeException( "Tamanho do enxame é insuficiente." );
-            }
+            saida.printf( "%s\n", regrasVisitadas );
+
+            return teste;
         }
-        catch ( SQLException e )
+
+        /**
+         * Treinamento síncrono: a cada iteração, todas as partículas são movidas e, em seguida, avaliadas. Na última
+         * iteração, apenas as partículas que cabem no restante do limite de avaliações são movidas e avaliadas, de
+         * modo que o treinamento termina com exatamente <code>maxiter</code> avaliações.
+         */
+        private void treinarSincrono()
         {
-            throw new RuntimeException( "Erro ao mapear nome das colunas que correspondem as saídas.", e );
-        }
-    }
+            while ( fitness.numAvaliacao() < maxNumAvaliacao )
+            {
+                final int numMovidas = fitness.reservarAvaliacoes( numParts );
 
-    /**
-     * Recupera as colunas da tabela.
-     */
-    private void carregarColunasTabela()
-    {
-        final ResultSetMetaData metadata;
+                for ( int indexPart = 0; indexPart < numParts; indexPart++ )
+                {
+                    Particula particula = particulas.get( indexPart );
 
-        final String sql = "SELECT * " + "FROM " + tabela + " " + "LIMIT 1";
+                    // gbest
+                    atualizarRepositorioGbest( particula );
 
-        int numCol;
+                    // pbest
+                    particula.atualizarPbest();
 
-        try ( PreparedStatement ps = conexao.prepareStatement( sql ); ResultSet rs = ps.executeQuery() )
-        {
-            metadata = rs.getMetaData();
-            numCol = metadata.getColumnCount();
+                    if ( indexPart < numMovidas )
+                    {
+                        // operador de turbulência
+                        aplicarTurbulencia( indexPart );
 
-            for ( int i = 0; i < numCol; i++ )
-            {
-                String coluna = metadata.getColumnName( i + 1 );
+                        // atualiza posição da partícula
+                        atualizarPosicao( indexPart );
+                    }
+                }
 
-                // retorna os atributos da base de dados
-                // sem o ID e a respectiva classe
-                if ( !colClasse.equalsIgnoreCase( coluna ) && !colId.equalsIgnoreCase( coluna ) )
+                // avaliação das novas posições
+                try
                 {
-                    colunas.add( coluna );
+                    avaliarEnxame( particulas.subList( 0, numMovidas ) );
                 }
+                finally
+                {
+                    fitness.liberarAvaliacoes( numMovidas );
+                }
+
+                buscaLocal();
             }
         }
-        catch ( SQLException e )
+
+        /**
+         * Treinamento assíncrono (steady-state): as novas posições são produzidas em uma fila limitada, consumida
+         * pelos trabalhadores de avaliação, e os repositórios são atualizados à medida que os resultados chegam. Cada
+         * partícula avaliada é imediatamente movida e reenviada, de modo que os movimentos se sobrepõem à latência das
+         * avaliações. A busca local é realizada a cada <code>npop</code> avaliações recebidas.
+         * <p>
+         * Cada envio e cada avaliação da busca local reservam uma avaliação do limite
+         * ({@link Fitness#reservarAvaliacoes(int)}), liberada pelo trabalhador ao concluir a avaliação. Como as
+         * avaliações em andamento são descontadas, o treinamento termina com exatamente <code>maxiter</code>
+         * avaliações.
+         * <p>
+         * Os repositórios, os operadores e o conjunto de regras visitadas são utilizados apenas pela thread do enxame;
+         * uma partícula não é movida enquanto está em avaliação. A ordem de chegada dos resultados, e portanto o
+         * resultado do treinamento, depende do tempo de cada avaliação.
+         */
+        private void treinarAssincrono()
         {
-            throw new RuntimeException( "Erro ao recuperar nome das colunas.", e );
-        }
-    }
+            final BlockingQueue<Integer> pendentes = new ArrayBlockingQueue<>( numTrabalhadores );
+            final BlockingQueue<CompletableFuture<Integer>> avaliadas = new LinkedBlockingQueue<>();
 
-    /**
-     * Retorna as respectivas classes da base de dados.
-     */
-    private void carregarClasses()
-    {
-        final String sql =
-                        "SELECT DISTINCT " + colClasse + " " + "FROM " + tabela + " " + "ORDER BY " + colClasse
-                                        + " ASC";
+            final ExecutorService trabalhadores = Executors.newFixedThreadPool( numTrabalhadores );
 
-        try ( PreparedStatement ps = conexao.prepareStatement( sql ); ResultSet rs = ps.executeQuery() )
-        {
-            while ( rs.next() )
+            for ( int t = 0; t < numTrabalhadores; t++ )
             {
-                classes.add( rs.getString( colClasse ) );
+                trabalhadores.execute( () -> avaliarPendentes( pendentes, avaliadas ) );
             }
-        }
-        catch ( SQLException e )
-        {
-            throw new RuntimeException( "Erro ao carregar as classes de saídas no banco de dados.", e );
-        }
-    }
 
-    /**
-     * Recupera os máximos e mínimos das colunas na base de dados.
-     */
-    private void carregarMaxMinColunasTabela()
-    {
-        // faixa de valores de cada coluna
-        final StringBuilder sb = new StringBuilder();
+            try
+            {
+                int emAvaliacao = 0;
+                long recebidas = 0;
 
-        for ( String entrada : colunas )
-        {
-            sb.append( ", " ).append( "max(" ).append( entrada ).append( ")" ).append( ", " ).append( "min(" ).append(
-                            entrada ).append( ")" );
-        }
+                for ( int indexPart = 0; indexPart < numParts; indexPart++ )
+                {
+                    atualizarRepositorios( indexPart );
 
-        final String sql = "SELECT " + sb.toString().substring( 1 ) + " FROM " + tabela;
+                    if ( fitness.reservarAvaliacoes( 1 ) == 1 )
+                    {
+                        moverParticula( indexPart );
 
-        try ( PreparedStatement ps = conexao.prepareStatement( sql ); ResultSet rs = ps.executeQuery() )
-        {
+                        pendentes.put( indexPart );
+                        emAvaliacao++;
+                    }
+                }
 
-            while ( rs.next() )
-            {
-                int i = 0;
-                for ( String entrada : colunas )
+                while ( emAvaliacao > 0 )
                 {
-                    max.put( entrada, rs.getDouble( i + 1 ) );
-                    min.put( entrada, rs.getDouble( i + 2 ) );
-                    i += 2;
-                }
-            }
-        }
-        catch ( SQLException e )
-        {
-            throw new RuntimeException( "Erro ao buscar (min, max) no banco de dados.", e );
-        }
-    }
+                    final int indexPart = avaliadas.take().join();
+                    emAvaliacao--;
 
-    /**
-     * Faz a divisão do total da população em nichos similares para cada classe do problema.
-     *
-     * @return População de cada nicho.
-     */
-    private Map<String, Integer> dividirNichoEnxame()
-    {
-        final int numClasses = classes.size();
-        final int numPopNicho = numParts / numClasses;
+                    atualizarRepositorios( indexPart );
 
-        final Map<String, Integer> nicho = new HashMap<>();
+                    if ( ++recebidas % numParts == 0 )
+                    {
+                        buscaLocal();
+                    }
 
-        int resto = numParts % numClasses;
+                    if ( fitness.reservarAvaliacoes( 1 ) == 1 )
+                    {
+                        moverParticula( indexPart );
 
-        for ( String cl : classes )
-        {
-            if ( resto > 0 )
+                        pendentes.put( indexPart );
+                        emAvaliacao++;
+                    }
+                }
+            }
+            catch ( InterruptedException e )
             {
-                nicho.put( cl, numPopNicho + 1 );
-                resto -= 1;
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Treinamento assíncrono interrompido.", e );
             }
-            else
+            catch ( CompletionException e )
             {
-                nicho.put( cl, numPopNicho );
+                // erros da JVM (falta de memória, estouro de pilha, asserções) são propagados sem encapsular
+                if ( e.getCause() instanceof Error )
+                {
+                    throw (Error) e.getCause();
+                }
+
+                throw new RuntimeException( "Erro na avaliação assíncrona do enxame.", e.getCause() );
+            }
+            finally
+            {
+                trabalhadores.shutdownNow();
             }
         }
 
-        return nicho;
-    }
-
-    /**
-     * Gera a população inicial.
-     *
-     * @return Lista contendo a população de partículas.
-     */
-    private List<Particula> criarEnxameInicial()
-    {
-        final List<Particula> newParts = new ArrayList<>();
-
-        for ( String cl : enxameNicho.keySet() )
+        /**
+         * Laço de um trabalhador de avaliação: avalia as partículas pendentes e publica o índice de cada partícula
+         * avaliada (ou o erro da avaliação). Termina ao ser interrompido.
+         *
+         * @param pendentes Índices das partículas a avaliar.
+         * @param avaliadas Resultados das avaliações.
+         */
+        private void avaliarPendentes( BlockingQueue<Integer> pendentes,
+                                       BlockingQueue<CompletableFuture<Integer>> avaliadas )
         {
-            final List<Particula> nichoParticulas = new ArrayList<>();
+            try
+            {
+                while ( true )
+                {
+                    final int indexPart = pendentes.take();
 
-            for ( int i = 0, len = enxameNicho.get( cl ); i < len; i++ )
+                    try
+                    {
+                        try
+                        {
+                            particulas.get( indexPart ).avaliar();
+                        }
+                        finally
+                        {
+                            // liberada antes da publicação, para que a partícula possa ser reenviada
+                            fitness.liberarAvaliacoes( 1 );
+                        }
+
+                        avaliadas.add( CompletableFuture.completedFuture( indexPart ) );
+                    }
+                    catch ( Throwable t )
+                    {
+                        // qualquer falha deve ser publicada, senão a thread do enxame aguarda o resultado
+                        // indefinidamente
+                        avaliadas.add( CompletableFuture.<Integer>failedFuture( t ) );
+                    }
+                }
+            }
+            catch ( InterruptedException e )
             {
-                Particula particula = criarParticula( cl );
-                nichoParticulas.add( particula );
+                // fim do treinamento
             }
-
-            // seta o gbest para cada nicho
-            inicializarRepositorio( cl, nichoParticulas );
-
-            newParts.addAll( nichoParticulas );
         }
 
-        return newParts;
-    }
-
-    /**
-     * Cria uma partícula para a classe definida.
-     *
-     * @param classe Classe.
-     * @return Uma nova partícula.
-     */
-    private Particula criarParticula( String classe )
-    {
-        final Set<String> pos = criarWhere();
-        return new Particula( pos, classe, fitness, random );
-    }
+        /**
+         * Atualiza o repositório gbest e o pbest com a posição avaliada da partícula.
+         *
+         * @param indexPart Índice da partícula.
+         */
+        private void atualizarRepositorios( int indexPart )
+        {
+            final Particula particula = particulas.get( indexPart );
 
-    /**
-     * Carrega as partículas iniciais não dominadas para cada objetivo do problema.
-     *
-     * @param classe     Nicho do enxame.
-     * @param particulas Lista de partículas.
-     */
-    private void inicializarRepositorio( String classe, List<Particula> particulas )
-    {
-        final List<Particula> rep = repositorio.get( classe );
+            atualizarRepositorioGbest( particula );
+            particula.atualizarPbest();
+        }
 
-        for ( Particula part : particulas )
+        /**
+         * Aplica a turbulência e atualiza a posição da partícula.
+         *
+         * @param indexPart Índice da partícula.
+         */
+        private void moverParticula( int indexPart )
         {
-            atualizarParticulasNaoDominadas( rep, part );
+            aplicarTurbulencia( indexPart );
+            atualizarPosicao( indexPart );
         }
-    }
 
-    /**
-     * Retorna um conjunto de condições que compõe uma cláusula SQL WHERE.
-     *
-     * @return Conjunto de condições da cláusula SQL WHERE.
-     */
-    private Set<String> criarWhere()
-    {
-        final int numCols = colunas.size();
-        final Set<String> conjWhere = new HashSet<>();
+        /**
+         * Mostra tabela de avaliação (teste).
+         *
+         * @param teste Lista de fitness encontrados por classe.
+         */
+        private void mostrarTeste( Map<String, List<double[]>> teste )
+        {
+            saida.println( "\n\nFase de teste:\n" );
 
-        final double r = (int) Math.floor( numCols * random.nextDouble() ) + 1;
-        final int maxWhere = (int) FastMath.ceil( FastMath.log( 2.0, r ) ) + 1;
+            saida.print( TAB_CABECALHO );
+            saida.println();
 
-        for ( int i = 0; i < maxWhere; i++ )
-        {
-            String cond = criarCondicao();
-            conjWhere.add( cond );
+            for ( String cl : classes )
+            {
+                final Iterator<double[]> r = teste.get( cl ).iterator();
+
+                for ( Particula part : repositorio.get( cl ) )
+                {
+                    mostrarLinhaTabela( cl, r.next(), part.whereSql() );
+                }
+            }
+
+            saida.println();
         }
 
-        return conjWhere;
-    }
+        /**
+         * Mostra tabela de resultados do treinamento.
+         */
+        private void mostrarTreinamento()
+        {
+            saida.println( "\n\nFase de treinamento:\n" );
 
-    /**
-     * Cria uma cláusula SQL WHERE, ou seja, a posição da partícula.
-     *
-     * @return String da cláusula SQL WHERE.
-     */
-    private String criarCondicao()
-    {
-        final int numOper = LISTA_OPERADORES.length;
-        final int numCols = colunas.size();
+            saida.println( TAB_CABECALHO );
 
-        final int colIndex = (int) Math.floor( numCols * random.nextDouble() );
-        final int operIndex = (int) Math.floor( numOper * random.nextDouble() );
+            final Map<String, ArquivoParetoConcorrente> solucoes = new TreeMap<>( repositorio );
 
-        final double prob = 0.9;
+            // o arquivo já é ordenado conforme Particula.compareTo
+            for ( Entry<String, ArquivoParetoConcorrente> parts : solucoes.entrySet() )
+            {
+                String classe = parts.getKey();
 
-        String valor;
+                for ( Particula part : parts.getValue() )
+                {
+                    final double[] fit = part.fitness();
+                    mostrarLinhaTabela( classe, fit, part.whereSql() );
+                }
+            }
+        }
 
-        // verifica se a condição será outro atributo ou valor numérico
-        if ( random.nextDouble() < prob )
+        /**
+         * Monta uma linha da tabela de resultado do algoritmo.
+         *
+         * @param classe   Nicho do enxame.
+         * @param fo       Funções objetivo.
+         * @param whereSql Cláusula WHERE.
+         */
+        private void mostrarLinhaTabela( String classe, double[] fo, String whereSql )
         {
-            final String coluna = colunas.get( colIndex );
-            final Double minCol = min.get( coluna );
-            final Double maxCol = max.get( coluna );
-            final double newVal = ( maxCol - minCol ) * random.nextDouble() + minCol;
+            String compl = format.formatar( fo[0] );
+            String efet = format.formatar( fo[1] );
+            String acur = format.formatar( fo[2] );
 
-            valor = formatarValorNumericoWhere( newVal );
+            saida.printf( TAB_LINHA, formatarClasse( classe ), compl, efet, acur, whereSql );
         }
-        else
+
+        /**
+         * Operador de turbulência.
+         *
+         * @param indexPart Índice da partícula.
+         */
+        private void aplicarTurbulencia( int indexPart )
         {
-            int index;
-            do
+            if ( ( indexPart % TURBULENCIA ) == 0 )
             {
-                index = (int) Math.floor( numCols * random.nextDouble() );
+                operadores.perturbar( particulas.get( indexPart ), true );
+            }
+            else if ( ( indexPart % TURBULENCIA ) == 1 )
+            {
+                operadores.perturbar( particulas.get( indexPart ), false );
             }
-            while ( index == colIndex ); // diferentes colunas
-
-            valor = colunas.get( index );
         }
 
-        String col = colunas.get( colIndex );
-        String oper = LISTA_OPERADORES[operIndex];
-
-        return formatarCondicaoWhere( col, oper, valor );
-    }
-
-    /**
-     * Retorna as classes do enxame.
-     *
-     * @return Classes ou nichos do enxame.
-     */
-    public Set<String> classes()
-    {
-        return classes;
-    }
-
-    /**
-     * Cria GBest.
-     */
-    private void criarRepositorioGbest()
-    {
-        // Lista não dominados (gbest)
-        for ( String cl : classes )
+        /**
+         * Atualiza posição.
+         *
+         * @param indexPart Índice da partícula.
+         */
+        private void atualizarPosicao( int indexPart )
         {
-            repositorio.put( cl, new ArrayList<Particula>() );
+            final Particula part = particulas.get( indexPart );
+
+            operadores.atualizarPosicao( part, repositorio.get( part.classe() ).instantaneo(), w, c1, c2 );
         }
-    }
 
-    /**
-     * Reset GBest.
-     */
-    private void resetRepositorioGbest()
-    {
-        // Lista não dominados (gbest)
-        for ( String cl : classes )
+        /**
+         * Avalia as novas posições de todas as partículas do enxame. Como nenhuma partícula utiliza o fitness atualizado
+         * de outra durante o movimento, as avaliações são independentes e podem ser realizadas em paralelo, produzindo o
+         * mesmo resultado da execução sequencial.
+         * <p>
+         * Com threads virtuais, todas as avaliações são submetidas de uma vez e aguardam no semáforo, que limita o
+         * número de avaliações (consultas ao banco de dados) em andamento, inclusive entre k-pastas simultâneas.
+         *
+         * @param parts Partículas a avaliar.
+         */
+        private void avaliarEnxame( List<Particula> parts )
         {
-            repositorio.get( cl ).clear();
-        }
-    }
+            if ( executor == null )
+            {
+                // avaliação em lote (uma única consulta por iteração na avaliação SQL)
+                fitness.avaliar( parts );
+                return;
+            }
 
-    /**
-     * Atualiza repositório de partículas não dominadas.
-     *
-     * @param p Partícula.
-     */
-    private void atualizarRepositorioGbest( Particula p )
-    {
-        final String classe = p.classe();
-        final List<Particula> gbestLista = repositorio.get( classe );
+            final List<Callable<Void>> tarefas = new ArrayList<>();
 
-        atualizarParticulasNaoDominadas( gbestLista, p );
+            for ( final Particula part : parts )
+            {
+                tarefas.add( () -> {
+                    if ( limiteAvaliacoes == null )
+                    {
+                        part.avaliar();
+                        return null;
+                    }
 
-        final List<Particula> rep = new ArrayList<>( gbestLista );
-        repositorio.put( classe, rep );
+                    limiteAvaliacoes.acquire();
 
-        // Verifica o número de soluções não dominadas no repositório gbest
-        verificarNumParticulas( random, rep );
-    }
+                    try
+                    {
+                        part.avaliar();
+                    }
+                    finally
+                    {
+                        limiteAvaliacoes.release();
+                    }
 
-    /**
-     * Validação Cruzada K-Pastas.
-     */
-    private List<List<String>> criarKpastas()
-    {
-        final List<List<String>> kpastasTemp = new ArrayList<>();
+                    return null;
+                } );
+            }
 
-        for ( int i = 0; i < NUM_K; i++ )
+            try
+            {
+                for ( Future<Void> tarefa : executor.invokeAll( tarefas ) )
+                {
+                    tarefa.get();
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Avaliação do enxame interrompida.", e );
+            }
+            catch ( ExecutionException e )
+            {
+                throw new RuntimeException( "Erro na avaliação paralela do enxame.", e.getCause() );
+            }
+        }
+
+        /**
+         * Busca Local.
+         */
+        private void buscaLocal()
         {
-            kpastasTemp.add( new ArrayList<String>() );
+            for ( String cl : classes )
+            {
+                final ArquivoParetoConcorrente rep = repositorio.get( cl );
+
+                // o arquivo é alterado durante a busca: percorre o instantâneo inicial, sem explorar as partículas já
+                // removidas
+                for ( Particula p : rep.instantaneo() )
+                {
+                    if ( rep.contains( p ) )
+                    {
+                        buscaLocalPareto( p );
+                    }
+                }
+            }
         }
 
-        // Embaralha registros
-        final Map<String, List<String>> temp = new HashMap<>();
-        final int tempSize = randMapaClasseId( temp );
+        /**
+         * Busca Local Pareto.
+         *
+         * @param p Partícula.
+         */
+        private void buscaLocalPareto( Particula p )
+        {
+            final String cl = p.classe();
+            final ArquivoParetoConcorrente rep = repositorio.get( cl );
 
-        final List<String> listaClasses = new ArrayList<>( classes );
+            final Particula pl = p.clonar();
 
-        int k = 0;
+            final double len = FastMath.log( colunas.size() ) + 1;
 
-        for ( int i = 0; i < tempSize; )
-        {
-            for ( int j = 0, size = listaClasses.size(); j < size; )
+            for ( int i = 0; i < len; i++ )
             {
-                String index = listaClasses.get( j );
-                List<String> ids = temp.get( index );
+                operadores.perturbar( pl, false );
 
-                while ( k < NUM_K )
+                if ( !regrasVisitadas.adicionar( pl.impressao() ) )
                 {
-                    if ( !ids.isEmpty() )
-                    {
-                        String id = ids.remove( 0 );
-                        kpastasTemp.get( k ).add( id );
-                        i++;
-                        k++;
-                    }
-                    else
-                    {
-                        break;
-                    }
+                    continue;
                 }
 
-                if ( k == NUM_K )
+                if ( fitness.reservarAvaliacoes( 1 ) == 0 )
                 {
-                    k = 0;
+                    // limite de avaliações atingido
+                    return;
                 }
-                else
+
+                try
                 {
-                    j++;
+                    pl.avaliar();
+                }
+                finally
+                {
+                    fitness.liberarAvaliacoes( 1 );
+                }
+
+                if ( verificarDominanciaEntre( pl, p ) >= 0 )
+                {
+                    atualizarParticulasNaoDominadas( rep, pl );
+                    break;
                 }
             }
         }
 
-        return kpastasTemp;
-    }
+        /**
+         * Gera a população inicial. As partículas são criadas sem avaliação e avaliadas de uma vez (em lote ou em
+         * paralelo), antes de carregar os repositórios.
+         *
+         * @return Lista contendo a população de partículas.
+         */
+        private List<Particula> criarEnxameInicial()
+        {
+            final List<Particula> newParts = new ArrayList<>();
 
-    /**
-     * Cria um clone com elementos aleatórios do mapa classe {@link #mapaClasseId} e retorna o número total de
-     * elementos.
-     *
-     * @param map Mapa de classe por ID.
-     * @return Número total de registro do mapa.
-     */
-    private int randMapaClasseId( Map<String, List<String>> map )
-    {
-        int total = 0;
+            for ( String cl : enxameNicho.keySet() )
+            {
+                for ( int i = 0, len = enxameNicho.get( cl ); i < len; i++ )
+                {
+                    newParts.add( criarParticula( cl ) );
+                }
+            }
 
-        // Deep cloning
-        for ( String cl : classes )
-        {
-            map.put( cl, new ArrayList<String>() );
+            avaliarEnxame( newParts );
 
-            List<String> mapaClasseTemp = mapaClasseId.get( cl );
+            int inicio = 0;
 
-            for ( int i = 0, size = mapaClasseTemp.size(); i < size; i++ )
+            for ( String cl : enxameNicho.keySet() )
             {
-                map.get( cl ).add( mapaClasseTemp.get( i ) );
-                total++;
+                final int fim = inicio + enxameNicho.get( cl );
+
+                // seta o gbest para cada nicho
+                inicializarRepositorio( cl, newParts.subList( inicio, fim ) );
+
+                inicio = fim;
             }
 
-            Collections.shuffle( map.get( cl ), random );
+            return newParts;
         }
 
-        return total;
-    }
+        /**
+         * Cria uma partícula para a classe definida.
+         *
+         * @param classe Classe.
+         * @return Uma nova partícula.
+         */
+        private Particula criarParticula( String classe )
+        {
+            final long[] pos = operadores.criarWhere();
+            return new Particula( pos, classe, fitness, limitePbest );
+        }
 
-    /**
-     * Retorna K-Pastas.
-     *
-     * @return Lista de K-Pastas estratificada.
-     */
-    public List<List<String>> getKPasta()
-    {
-        return kpastas;
-    }
+        /**
+         * Carrega as partículas iniciais não dominadas para cada objetivo do problema.
+         *
+         * @param classe     Nicho do enxame.
+         * @param particulas Lista de partículas.
+         */
+        private void inicializarRepositorio( String classe, List<Particula> particulas )
+        {
+            final ArquivoParetoConcorrente rep = repositorio.get( classe );
 
-    /**
-     * Retorna o valor médio global (média da classes) para as K-Pastas.
-     *
-     * @return Retorna um array com o valor médio global da efetividade e acurácia.
-     */
-    public double[] valorMedioGlobal()
-    {
-        return valorMedioGlobal;
-    }
+            for ( Particula part : particulas )
+            {
+                atualizarParticulasNaoDominadas( rep, part );
+            }
+        }
 
-    /**
-     * Retorna o valor médio por classes para as K-Pastas.
-     *
-     * @return Retorna um mapa da efetividade e acurácia.
-     */
-    public Map<String, double[]> valorMedioPorClasses()
-    {
-        return valorMedioPorClasse;
+        /**
+         * Cria GBest.
+         */
+        private void criarRepositorioGbest()
+        {
+            // Lista não dominados (gbest)
+            for ( String cl : classes )
+            {
+                repositorio.put( cl, new ArquivoParetoConcorrente( limiteRepositorio ) );
+            }
+        }
+
+        /**
+         * Reset GBest.
+         */
+        private void resetRepositorioGbest()
+        {
+            // Lista não dominados (gbest)
+            for ( String cl : classes )
+            {
+                repositorio.get( cl ).clear();
+            }
+        }
+
+        /**
+         * Atualiza repositório de partículas não dominadas.
+         *
+         * @param p Partícula.
+         */
+        private void atualizarRepositorioGbest( Particula p )
+        {
+            final String classe = p.classe();
+            final ArquivoParetoConcorrente rep = repositorio.get( classe );
+
+            // o repositório gbest é limitado pela distância de aglomeração
+            atualizarParticulasNaoDominadas( rep, p );
+        }
     }
 }
@@ -0,0 +1,309 @@
+package com.github.tsprates.pso;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Conjunto das regras já visitadas pela busca local, indexado pela impressão digital (64 bits) de cada regra e com
+ * limite de memória. Há duas implementações:
+ * <ul>
+ * <li><b>hash</b>: tabela de endereçamento aberto de impressões digitais. Falsos positivos ocorrem apenas em colisões
+ * de 64 bits; ao atingir o limite de memória, a tabela é esvaziada e as regras voltam a ser exploradas.</li>
+ * <li><b>bloom</b>: filtro de Bloom que ocupa todo o limite de memória desde o início. Nunca é esvaziado, mas a taxa
+ * de falsos positivos cresce com o número de regras.</li>
+ * </ul>
+ * Um falso positivo apenas deixa de explorar uma regra inédita. As instâncias não são thread-safe (uma por enxame).
+ *
+ * @author thiago
+ * @see Condicao#impressao(long[], int)
+ */
+public abstract class RegrasVisitadas
+{
+
+    private long consultas = 0;
+
+    private long repetidas = 0;
+
+    /**
+     * Cria o conjunto de regras visitadas.
+     *
+     * @param filtro     Tipo do conjunto: "hash" ou "bloom".
+     * @param memoriaMax Memória máxima, em bytes.
+     * @return Conjunto de regras visitadas.
+     */
+    public static RegrasVisitadas criar( String filtro, long memoriaMax )
+    {
+        if ( "hash".equalsIgnoreCase( filtro ) )
+        {
+            return new Hash( memoriaMax );
+        }
+
+        if ( "bloom".equalsIgnoreCase( filtro ) )
+        {
+            return new Bloom( memoriaMax );
+        }
+
+        throw new RuntimeException( "Filtro de regras visitadas inválido: " + filtro );
+    }
+
+    /**
+     * Adiciona a regra ao conjunto.
+     *
+     * @param impressao Impressão digital da regra.
+     * @return Verdadeiro se a regra ainda não foi visitada; falso se já foi (ou em caso de falso positivo).
+     */
+    public boolean adicionar( long impressao )
+    {
+        consultas += 1;
+
+        final boolean nova = inserir( impressao );
+
+        if ( !nova )
+        {
+            repetidas += 1;
+        }
+
+        return nova;
+    }
+
+    /**
+     * Insere a impressão digital na estrutura.
+     *
+     * @param impressao Impressão digital.
+     * @return Verdadeiro se a impressão não estava presente.
+     */
+    protected abstract boolean inserir( long impressao );
+
+    /**
+     * Retorna a probabilidade estimada de uma regra inédita ser considerada visitada no estado atual.
+     *
+     * @return Taxa de falsos positivos estimada.
+     */
+    public abstract double taxaFalsosPositivos();
+
+    /**
+     * Retorna a memória ocupada pela estrutura.
+     *
+     * @return Memória em bytes.
+     */
+    public abstract long memoria();
+
+    /**
+     * Detalhes da implementação para as estatísticas.
+     *
+     * @return String com os detalhes.
+     */
+    protected abstract String detalhes();
+
+    /**
+     * Retorna o número de consultas.
+     *
+     * @return Número de consultas.
+     */
+    public long consultas()
+    {
+        return consultas;
+    }
+
+    /**
+     * Retorna o número de regras consideradas já visitadas.
+     *
+     * @return Número de regras repetidas.
+     */
+    public long repetidas()
+    {
+        return repetidas;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( Locale.ROOT,
+                              "Regras visitadas: consultas=%d, repetidas=%d, %s, memória=%d KB, falsos positivos=%.2e",
+                              consultas, repetidas, detalhes(), memoria() / 1024, taxaFalsosPositivos() );
+    }
+
+    /**
+     * Tabela de endereçamento aberto (sondagem linear) de impressões digitais.
+     */
+    private static class Hash
+                    extends RegrasVisitadas
+    {
+
+        private static final int CAPACIDADE_INICIAL = 1024;
+
+        private final int capacidadeMax;
+
+        private long[] tabela = new long[CAPACIDADE_INICIAL];
+
+        private boolean contemZero = false;
+
+        private int size = 0;
+
+        private long descartes = 0;
+
+        Hash( long memoriaMax )
+        {
+            // maior potência de dois que cabe no limite de memória
+            final long entradas = Math.max( CAPACIDADE_INICIAL, Math.min( 1 << 30, memoriaMax / 8 ) );
+            this.capacidadeMax = Integer.highestOneBit( (int) entradas );
+        }
+
+        @Override
+        protected boolean inserir( long impressao )
+        {
+            // o zero marca posições vazias da tabela
+            if ( impressao == 0 )
+            {
+                final boolean nova = !contemZero;
+                contemZero = true;
+                return nova;
+            }
+
+            final int mascara = tabela.length - 1;
+            int i = (int) impressao & mascara;
+
+            while ( tabela[i] != 0 )
+            {
+                if ( tabela[i] == impressao )
+                {
+                    return false;
+                }
+
+                i = ( i + 1 ) & mascara;
+            }
+
+            tabela[i] = impressao;
+            size += 1;
+
+            // fator de carga máximo de 1/2
+            if ( 2 * size > tabela.length )
+            {
+                if ( tabela.length < capacidadeMax )
+                {
+                    redimensionar( 2 * tabela.length );
+                }
+                else
+                {
+                    Arrays.fill( tabela, 0L );
+                    contemZero = false;
+                    size = 0;
+                    descartes += 1;
+                }
+            }
+
+            return true;
+        }
+
+        private void redimensionar( int capacidade )
+        {
+            final long[] antiga = tabela;
+            final int mascara = capacidade - 1;
+
+            tabela = new long[capacidade];
+
+            for ( long impressao : antiga )
+            {
+                if ( impressao != 0 )
+                {
+                    int i = (int) impressao & mascara;
+
+                    while ( tabela[i] != 0 )
+                    {
+                        i = ( i + 1 ) & mascara;
+                    }
+
+                    tabela[i] = impressao;
+                }
+            }
+        }
+
+        @Override
+        public double taxaFalsosPositivos()
+        {
+            // colisão de 64 bits com alguma das impressões armazenadas
+            return ( size + ( contemZero ? 1 : 0 ) ) / Math.pow( 2, 64 );
+        }
+
+        @Override
+        public long memoria()
+        {
+            return 8L * tabela.length;
+        }
+
+        @Override
+        protected String detalhes()
+        {
+            return String.format( Locale.ROOT, "filtro=hash, entradas=%d, descartes=%d", size, descartes );
+        }
+    }
+
+    /**
+     * Filtro de Bloom com sondagem por hash duplo sobre a impressão digital.
+     */
+    private static class Bloom
+                    extends RegrasVisitadas
+    {
+
+        private static final int NUM_HASHES = 7;
+
+        private final long[] bits;
+
+        private final long mascara;
+
+        private long bitsMarcados = 0;
+
+        Bloom( long memoriaMax )
+        {
+            // maior potência de dois (em bits) que cabe no limite de memória
+            final long palavras = Math.max( 1, Math.min( 1 << 30, memoriaMax / 8 ) );
+
+            this.bits = new long[Integer.highestOneBit( (int) palavras )];
+            this.mascara = 64L * bits.length - 1;
+        }
+
+        @Override
+        protected boolean inserir( long impressao )
+        {
+            final long h1 = impressao;
+            final long h2 = Condicao.impressao( impressao ) | 1;
+
+            boolean nova = false;
+
+            for ( int k = 0; k < NUM_HASHES; k++ )
+            {
+                final long pos = ( h1 + k * h2 ) & mascara;
+                final int palavra = (int) ( pos >>> 6 );
+                final long bit = 1L << pos;
+
+                if ( ( bits[palavra] & bit ) == 0 )
+                {
+                    bits[palavra] |= bit;
+                    bitsMarcados += 1;
+                    nova = true;
+                }
+            }
+
+            return nova;
+        }
+
+        @Override
+        public double taxaFalsosPositivos()
+        {
+            // probabilidade de todos os bits sondados já estarem marcados
+            return Math.pow( (double) bitsMarcados / ( mascara + 1 ), NUM_HASHES );
+        }
+
+        @Override
+        public long memoria()
+        {
+            return 8L * bits.length;
+        }
+
+        @Override
+        protected String detalhes()
+        {
+            return String.format( Locale.ROOT, "filtro=bloom, bits marcados=%d/%d", bitsMarcados, mascara + 1 );
+        }
+    }
+}
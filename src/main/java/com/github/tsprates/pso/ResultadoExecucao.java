@@ -0,0 +1,64 @@
+package com.github.tsprates.pso;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de uma execução do PSO: as k-pastas utilizadas e os valores médios de efetividade e acurácia.
+ *
+ * @author thiago
+ */
+public class ResultadoExecucao
+{
+
+    private final List<List<String>> kpastas;
+
+    private final double[] valorMedioGlobal;
+
+    private final Map<String, double[]> valorMedioPorClasse;
+
+    /**
+     * Construtor.
+     *
+     * @param kpastas             K-Pastas da execução.
+     * @param valorMedioGlobal    Valor médio global da efetividade e acurácia.
+     * @param valorMedioPorClasse Valor médio da efetividade e acurácia por classe.
+     */
+    public ResultadoExecucao( List<List<String>> kpastas, double[] valorMedioGlobal,
+                              Map<String, double[]> valorMedioPorClasse )
+    {
+        this.kpastas = kpastas;
+        this.valorMedioGlobal = valorMedioGlobal;
+        this.valorMedioPorClasse = valorMedioPorClasse;
+    }
+
+    /**
+     * Retorna K-Pastas.
+     *
+     * @return Lista de K-Pastas estratificada.
+     */
+    public List<List<String>> getKPasta()
+    {
+        return kpastas;
+    }
+
+    /**
+     * Retorna o valor médio global (média da classes) para as K-Pastas.
+     *
+     * @return Retorna um array com o valor médio global da efetividade e acurácia.
+     */
+    public double[] valorMedioGlobal()
+    {
+        return valorMedioGlobal;
+    }
+
+    /**
+     * Retorna o valor médio por classes para as K-Pastas.
+     *
+     * @return Retorna um mapa com a efetividade e acurácia de cada classe.
+     */
+    public Map<String, double[]> valorMedioPorClasses()
+    {
+        return valorMedioPorClasse;
+    }
+}
@@ -1,17 +1,28 @@
 package com.github.tsprates.pso;
 
-import org.apache.commons.lang3.StringUtils;
+import weka.classifiers.Classifier;
 import weka.classifiers.Evaluation;
 import weka.classifiers.functions.RBFNetwork;
 import weka.classifiers.functions.SMO;
 import weka.classifiers.trees.J48;
+import weka.core.Attribute;
+import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Utils;
 import weka.experiment.InstanceQuery;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.Remove;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.Properties;
 
 /**
@@ -22,6 +33,8 @@ import java.util.Properties;
 public class Weka
 {
 
+    private final static int NUM_ALGORITMOS = 3;
+
     private final String tabela;
 
     private final String colId;
@@ -30,6 +43,12 @@ public class Weka
 
     private final String optsJ48, optsSMO, optsRBF;
 
+    private final int numThreads;
+
+    private final Instances dados;
+
+    private final Map<String, Integer> linhaPorId;
+
     private int numClasses;
 
     private double[][] efet = null; // efetividade
@@ -37,11 +56,23 @@ public class Weka
     private double[][] acur = null; // acurácia
 
     /**
-     * Construtor.
+     * Construtor. A tabela é carregada uma única vez, ordenada pela classe, e as partições de treinamento e teste de
+     * cada k-pasta são montadas em memória.
      *
      * @param config
      */
     public Weka( Properties config )
+    {
+        this( config, carregarTabela( config ) );
+    }
+
+    /**
+     * Construtor a partir da tabela já carregada.
+     *
+     * @param config         Configurações.
+     * @param tabelaCompleta Registros da tabela, com o atributo ID e o atributo classe definido.
+     */
+    Weka( Properties config, Instances tabelaCompleta )
     {
         this.tabela = config.getProperty( "tabela" );
         this.colClasse = config.getProperty( "saida" );
@@ -56,19 +87,46 @@ public class Weka
 
         this.optsRBF = String.format( "-B %s -W %s", config.getProperty( "RBF.clusters" ),
                                       config.getProperty( "RBF.min_std_dev_clusters" ) );
+
+        // número de combinações algoritmo e k-pasta avaliadas simultaneamente
+        this.numThreads = Integer.valueOf( config.getProperty( "threads.weka", "1" ) );
+
+        this.linhaPorId = new HashMap<>();
+        this.dados = indexarTabela( tabelaCompleta );
     }
 
     /**
-     * Classifica algoritmos do WEKA por classes.
+     * Construtor de cópia. Os dados carregados são compartilhados (somente leitura), enquanto os resultados da
+     * classificação são próprios da nova instância.
      *
-     * @param K
-     * @param kpastas
+     * @param outra Instância do WEKA.
      */
-    public void classificar( int K, List<List<String>> kpastas )
+    public Weka( Weka outra )
     {
-        // reset
-        efet = null;
-        acur = null;
+        this.tabela = outra.tabela;
+        this.colClasse = outra.colClasse;
+        this.colId = outra.colId;
+
+        this.optsJ48 = outra.optsJ48;
+        this.optsSMO = outra.optsSMO;
+        this.optsRBF = outra.optsRBF;
+
+        this.numThreads = outra.numThreads;
+
+        this.linhaPorId = outra.linhaPorId;
+        this.dados = outra.dados;
+    }
+
+    /**
+     * Carrega a tabela do banco de dados, ordenada pela classe.
+     *
+     * @param config Configurações.
+     * @return Instâncias da tabela.
+     */
+    private static Instances carregarTabela( Properties config )
+    {
+        final String tabela = config.getProperty( "tabela" );
+        final String colClasse = config.getProperty( "saida" );
 
         try
         {
@@ -76,111 +134,301 @@ public class Weka
             query.setUsername( DB.USERNAME );
             query.setPassword( DB.PASSWORD );
 
-            for ( int i = 0; i < K; i++ )
-            {
-                String ids = StringUtils.join( kpastas.get( i ), ", " );
+            // mesma ordenação das antigas consultas por k-pasta
+            query.setQuery( "SELECT * " + "FROM " + tabela + " " + "ORDER BY " + colClasse + " ASC" );
 
-                // Treinamento
-                final String sqlTrain = "SELECT * " + "FROM " + tabela + " " + "WHERE " + colId + " NOT IN (" + ids
-                                + ")" + "ORDER BY " + colClasse + " ASC";
-                query.setQuery( sqlTrain );
+            Instances tabelaCompleta = query.retrieveInstances();
+            tabelaCompleta.setClassIndex( tabelaCompleta.attribute( colClasse ).index() );
 
-                Instances train = query.retrieveInstances();
-                train.setClassIndex( train.attribute( colClasse ).index() );
+            query.disconnectFromDatabase();
 
-                Instances trainData = removerColId( train );
+            return tabelaCompleta;
+        }
+        catch ( Exception e )
+        {
+            throw new RuntimeException( "Erro ao carregar a tabela no WEKA.", e );
+        }
+    }
 
-                // Árvore de Decisão
-                J48 j48 = new J48();
-                j48.setOptions( Utils.splitOptions( optsJ48 ) );
-                j48.buildClassifier( trainData );
+    /**
+     * Mapeia o ID de cada registro para a sua linha e remove o atributo ID.
+     *
+     * @param tabelaCompleta Instâncias da tabela.
+     * @return Instâncias da tabela, sem o atributo ID.
+     */
+    private Instances indexarTabela( Instances tabelaCompleta )
+    {
+        final Attribute atributoId = tabelaCompleta.attribute( colId );
 
-                // SVM
-                SMO smo = new SMO();
-                smo.setOptions( Utils.splitOptions( optsSMO ) );
-                smo.buildClassifier( trainData );
+        for ( int i = 0, size = tabelaCompleta.numInstances(); i < size; i++ )
+        {
+            linhaPorId.put( idRegistro( tabelaCompleta.instance( i ), atributoId ), i );
+        }
 
-                // Rede Neural de Base Radial
-                RBFNetwork rbf = new RBFNetwork();
-                rbf.setOptions( Utils.splitOptions( optsRBF ) );
-                rbf.buildClassifier( trainData );
+        try
+        {
+            return removerColId( tabelaCompleta );
+        }
+        catch ( Exception e )
+        {
+            throw new RuntimeException( "Erro ao remover o atributo ID no WEKA.", e );
+        }
+    }
+
+    /**
+     * Retorna o ID de um registro no mesmo formato dos IDs das k-pastas.
+     *
+     * @param instancia  Registro.
+     * @param atributoId Atributo ID.
+     * @return ID do registro.
+     */
+    private static String idRegistro( Instance instancia, Attribute atributoId )
+    {
+        if ( atributoId.isNumeric() )
+        {
+            return BigDecimal.valueOf( instancia.value( atributoId ) ).stripTrailingZeros().toPlainString();
+        }
 
-                // Teste
-                final String sqlTest = "SELECT * " + "FROM " + tabela + " " + "WHERE " + colId + " IN (" + ids + ")"
-                                + "ORDER BY " + colClasse + " ASC";
-                query.setQuery( sqlTest );
+        return instancia.stringValue( atributoId );
+    }
 
-                Instances test = query.retrieveInstances();
-                test.setClassIndex( test.attribute( colClasse ).index() );
+    /**
+     * Monta as partições de treinamento e teste de uma k-pasta. A partição de teste contém os registros cujos IDs
+     * pertencem à k-pasta e a de treinamento, os demais: os mesmos registros das antigas consultas <code>IN</code> e
+     * <code>NOT IN</code> por k-pasta. Ambas preservam a ordem da carga, isto é, os registros agrupados pela classe
+     * em ordem crescente. Dentro de cada classe, a ordem é a da consulta única; como o <code>ORDER BY</code> não
+     * define a ordem dos empates, o PostgreSQL não garante que consultas distintas por k-pasta a reproduzam.
+     *
+     * @param kpasta IDs dos registros de teste.
+     * @return Partição de treinamento e de teste, respectivamente.
+     */
+    Instances[] particionar( List<String> kpasta )
+    {
+        final boolean[] teste = new boolean[dados.numInstances()];
 
-                // Remove atributo id
-                Instances testData = removerColId( test );
+        for ( String id : kpasta )
+        {
+            final Integer linha = linhaPorId.get( id );
+
+            if ( linha == null )
+            {
+                throw new RuntimeException( "Registro não encontrado no WEKA: " + id );
+            }
+
+            teste[linha] = true;
+        }
+
+        final Instances train = new Instances( dados, dados.numInstances() - kpasta.size() );
+        final Instances test = new Instances( dados, kpasta.size() );
+
+        for ( int i = 0, size = dados.numInstances(); i < size; i++ )
+        {
+            if ( teste[i] )
+            {
+                test.add( dados.instance( i ) );
+            }
+            else
+            {
+                train.add( dados.instance( i ) );
+            }
+        }
+
+        return new Instances[] { train, test };
+    }
 
-                Evaluation evalJ48 = new Evaluation( trainData );
-                evalJ48.evaluateModel( j48, testData );
+    /**
+     * Classifica algoritmos do WEKA por classes. Cada combinação de algoritmo e k-pasta é independente; quando
+     * configurado (<code>threads.weka</code>), as combinações são treinadas e avaliadas simultaneamente e os
+     * resultados são acumulados na ordem das k-pastas, preservando os valores da execução sequencial.
+     *
+     * @param K
+     * @param kpastas
+     */
+    public void classificar( int K, List<List<String>> kpastas )
+    {
+        // reset
+        efet = null;
+        acur = null;
 
-                Evaluation evalSMO = new Evaluation( trainData );
-                evalSMO.evaluateModel( smo, testData );
+        // total de classes
+        numClasses = dados.numClasses();
 
-                Evaluation evalRBF = new Evaluation( trainData );
-                evalRBF.evaluateModel( rbf, testData );
+        final double[][][][] resultados = new double[K][NUM_ALGORITMOS][][];
 
-                // total de classes
-                numClasses = trainData.numClasses();
+        if ( numThreads <= 1 )
+        {
+            for ( int i = 0; i < K; i++ )
+            {
+                final Instances[] particao = particionar( kpastas.get( i ) );
 
-                if ( efet == null )
+                for ( int algo = 0; algo < NUM_ALGORITMOS; algo++ )
                 {
-                    efet = new double[3][numClasses];
+                    resultados[i][algo] = avaliar( algo, particao[0], particao[1] );
                 }
+            }
+        }
+        else
+        {
+            avaliarSimultaneamente( K, kpastas, resultados );
+        }
+
+        efet = new double[NUM_ALGORITMOS][numClasses];
+        acur = new double[NUM_ALGORITMOS][numClasses];
 
-                if ( acur == null )
+        for ( int i = 0; i < K; i++ )
+        {
+            for ( int algo = 0; algo < NUM_ALGORITMOS; algo++ )
+            {
+                for ( int j = 0; j < numClasses; j++ )
                 {
-                    acur = new double[3][numClasses];
+                    efet[algo][j] += resultados[i][algo][0][j];
+                    acur[algo][j] += resultados[i][algo][1][j];
                 }
+            }
+        }
 
-                for ( int j = 0; j < numClasses; j++ )
+        for ( int i = 0; i < numClasses; i++ )
+        {
+            for ( int algo = 0; algo < NUM_ALGORITMOS; algo++ )
+            {
+                efet[algo][i] /= K;
+                acur[algo][i] /= K;
+            }
+        }
+    }
+
+    /**
+     * Treina e avalia as combinações de algoritmo e k-pasta em um pool de threads. Cada tarefa utiliza a sua própria
+     * cópia das partições.
+     *
+     * @param K          Número de k-pastas.
+     * @param kpastas    K-Pastas.
+     * @param resultados Resultados indexados por k-pasta e algoritmo.
+     */
+    private void avaliarSimultaneamente( int K, List<List<String>> kpastas, double[][][][] resultados )
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( numThreads );
+
+        try
+        {
+            final List<Future<double[][]>> tarefas = new ArrayList<>();
+
+            // SMO é o algoritmo mais custoso, por isso é submetido primeiro em cada k-pasta
+            final int[] ordem = { 1, 0, 2 };
+
+            for ( int i = 0; i < K; i++ )
+            {
+                final Instances[] particao = particionar( kpastas.get( i ) );
+
+                for ( final int algo : ordem )
                 {
-                    efet[0][j] += ( evalJ48.numTruePositives( j )
-                                    / ( evalJ48.numTruePositives( j ) + evalJ48.numFalseNegatives( j ) ) )
-                                    * ( evalJ48.numTrueNegatives( j )
-                                    / ( evalJ48.numTrueNegatives( j ) + evalJ48.numFalsePositives( j ) ) );
-                    efet[1][j] += ( evalSMO.numTruePositives( j )
-                                    / ( evalSMO.numTruePositives( j ) + evalSMO.numFalseNegatives( j ) ) )
-                                    * ( evalSMO.numTrueNegatives( j )
-                                    / ( evalSMO.numTrueNegatives( j ) + evalSMO.numFalsePositives( j ) ) );
-                    efet[2][j] += ( evalRBF.numTruePositives( j )
-                                    / ( evalRBF.numTruePositives( j ) + evalRBF.numFalseNegatives( j ) ) )
-                                    * ( evalRBF.numTrueNegatives( j )
-                                    / ( evalRBF.numTrueNegatives( j ) + evalRBF.numFalsePositives( j ) ) );
-
-                    acur[0][j] += ( evalJ48.numTruePositives( j ) + evalJ48.numTrueNegatives( j ) )
-                                    / ( evalJ48.numTruePositives( j ) + evalJ48.numTrueNegatives( j )
-                                    + evalJ48.numFalsePositives( j ) + evalJ48.numFalseNegatives( j ) );
-                    acur[1][j] += ( evalSMO.numTruePositives( j ) + evalSMO.numTrueNegatives( j ) )
-                                    / ( evalSMO.numTruePositives( j ) + evalSMO.numTrueNegatives( j )
-                                    + evalSMO.numFalsePositives( j ) + evalSMO.numFalseNegatives( j ) );
-                    acur[2][j] += ( evalRBF.numTruePositives( j ) + evalRBF.numTrueNegatives( j ) )
-                                    / ( evalRBF.numTruePositives( j ) + evalRBF.numTrueNegatives( j )
-                                    + evalRBF.numFalsePositives( j ) + evalRBF.numFalseNegatives( j ) );
+                    final Instances train = new Instances( particao[0] );
+                    final Instances test = new Instances( particao[1] );
+
+                    tarefas.add( executor.submit( new Callable<double[][]>()
+                    {
+                        @Override
+                        public double[][] call()
+                        {
+                            return avaliar( algo, train, test );
+                        }
+                    } ) );
                 }
             }
 
-            for ( int i = 0; i < numClasses; i++ )
+            int t = 0;
+
+            for ( int i = 0; i < K; i++ )
             {
-                efet[0][i] /= K;
-                efet[1][i] /= K;
-                efet[2][i] /= K;
+                for ( int algo : ordem )
+                {
+                    resultados[i][algo] = tarefas.get( t++ ).get();
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Classificação do WEKA interrompida.", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new RuntimeException( "Erro na classificação paralela do WEKA.", e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Treina e avalia um algoritmo em uma k-pasta.
+     *
+     * @param algo      Algoritmo (0: J48, 1: SMO, 2: RBF).
+     * @param trainData Partição de treinamento.
+     * @param testData  Partição de teste.
+     * @return Efetividade e acurácia por classe, respectivamente.
+     */
+    private double[][] avaliar( int algo, Instances trainData, Instances testData )
+    {
+        try
+        {
+            final Classifier classificador = criarClassificador( algo );
+            classificador.buildClassifier( trainData );
+
+            Evaluation eval = new Evaluation( trainData );
+            eval.evaluateModel( classificador, testData );
 
-                acur[0][i] /= K;
-                acur[1][i] /= K;
-                acur[2][i] /= K;
+            final double[][] resultado = new double[2][numClasses];
+
+            for ( int j = 0; j < numClasses; j++ )
+            {
+                resultado[0][j] = ( eval.numTruePositives( j )
+                                / ( eval.numTruePositives( j ) + eval.numFalseNegatives( j ) ) )
+                                * ( eval.numTrueNegatives( j )
+                                / ( eval.numTrueNegatives( j ) + eval.numFalsePositives( j ) ) );
+
+                resultado[1][j] = ( eval.numTruePositives( j ) + eval.numTrueNegatives( j ) )
+                                / ( eval.numTruePositives( j ) + eval.numTrueNegatives( j )
+                                + eval.numFalsePositives( j ) + eval.numFalseNegatives( j ) );
             }
+
+            return resultado;
         }
         catch ( Exception e )
         {
             throw new RuntimeException( e );
         }
+    }
 
+    /**
+     * Cria o classificador com as opções definidas nas configurações.
+     *
+     * @param algo Algoritmo (0: J48, 1: SMO, 2: RBF).
+     * @return Classificador.
+     * @throws Exception
+     */
+    private Classifier criarClassificador( int algo )
+                    throws Exception
+    {
+        switch ( algo )
+        {
+            case 0:
+                // Árvore de Decisão
+                J48 j48 = new J48();
+                j48.setOptions( Utils.splitOptions( optsJ48 ) );
+                return j48;
+            case 1:
+                // SVM
+                SMO smo = new SMO();
+                smo.setOptions( Utils.splitOptions( optsSMO ) );
+                return smo;
+            default:
+                // Rede Neural de Base Radial
+                RBFNetwork rbf = new RBFNetwork();
+                rbf.setOptions( Utils.splitOptions( optsRBF ) );
+                return rbf;
+        }
     }
 
     /**
@@ -0,0 +1,215 @@
+package com.github.tsprates.pso;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.mockito.Mockito;
+
+import java.util.*;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes do arquivo de partículas não dominadas.
+ */
+public class ArquivoParetoTest
+                extends TestCase
+{
+
+    public ArquivoParetoTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( ArquivoParetoTest.class );
+    }
+
+    private Particula criarParticula( double... fit )
+    {
+        Particula p = Mockito.mock( Particula.class );
+        when( p.fitness() ).thenReturn( fit );
+        when( p.clonar() ).thenReturn( p );
+        return p;
+    }
+
+    private ArquivoPareto criarArquivo()
+    {
+        final ArquivoPareto arquivo = new ArquivoPareto();
+
+        assertEquals( 1, arquivo.atualizar( criarParticula( 0.2, 0.3, 1 ) ) );
+        assertEquals( 1, arquivo.atualizar( criarParticula( 0.3, 0.4, 1 ) ) );
+        assertEquals( 1, arquivo.atualizar( criarParticula( 0.5, 0.1, 1 ) ) );
+
+        return arquivo;
+    }
+
+    private String fitness( Iterable<Particula> parts )
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        for ( Particula p : parts )
+        {
+            sb.append( Arrays.toString( p.fitness() ) );
+        }
+
+        return sb.toString();
+    }
+
+    public void test_arquivo_ordenado_por_efetividade()
+    {
+        final ArquivoPareto arquivo = criarArquivo();
+
+        // [0.2, 0.3] é dominada por [0.3, 0.4]
+        assertEquals( 2, arquivo.size() );
+        assertEquals( "[0.5, 0.1, 1.0][0.3, 0.4, 1.0]", fitness( arquivo ) );
+    }
+
+    public void test_particula_dominada_e_repetida()
+    {
+        final ArquivoPareto arquivo = criarArquivo();
+
+        assertEquals( -1, arquivo.atualizar( criarParticula( 0.1, 0.3, 1 ) ) );
+        assertEquals( -1, arquivo.atualizar( criarParticula( 0.3, 0.1, 1 ) ) );
+        assertEquals( 0, arquivo.atualizar( criarParticula( 0.3, 0.4, 0.5 ) ) );
+        assertEquals( 2, arquivo.size() );
+    }
+
+    public void test_particula_domina_varias_particulas()
+    {
+        final ArquivoPareto arquivo = criarArquivo();
+
+        assertEquals( 1, arquivo.atualizar( criarParticula( 0.4, 0.25, 1 ) ) );
+        assertEquals( "[0.5, 0.1, 1.0][0.4, 0.25, 1.0][0.3, 0.4, 1.0]", fitness( arquivo ) );
+
+        assertEquals( 1, arquivo.atualizar( criarParticula( 0.5, 0.4, 1 ) ) );
+        assertEquals( "[0.5, 0.4, 1.0]", fitness( arquivo ) );
+    }
+
+    public void test_limite_remove_menor_distancia_de_aglomeracao()
+    {
+        final ArquivoPareto arquivo = new ArquivoPareto( 3 );
+
+        arquivo.atualizar( criarParticula( 0.1, 0.9, 1 ) );
+        arquivo.atualizar( criarParticula( 0.9, 0.1, 1 ) );
+        arquivo.atualizar( criarParticula( 0.8, 0.2, 1 ) );
+
+        // [0.8, 0.2] fica mais aglomerada que a nova partícula e é removida
+        assertEquals( 1, arquivo.atualizar( criarParticula( 0.75, 0.25, 1 ) ) );
+        assertEquals( "[0.9, 0.1, 1.0][0.75, 0.25, 1.0][0.1, 0.9, 1.0]", fitness( arquivo ) );
+
+        // os extremos são sempre preservados
+        arquivo.atualizar( criarParticula( 0.5, 0.5, 1 ) );
+        assertEquals( "[0.9, 0.1, 1.0][0.5, 0.5, 1.0][0.1, 0.9, 1.0]", fitness( arquivo ) );
+    }
+
+    public void test_equivalente_a_lista_de_nao_dominadas()
+    {
+        final Random random = new Random( 1L );
+
+        final List<Particula> lista = new ArrayList<>();
+        final ArquivoPareto arquivo = new ArquivoPareto( Integer.MAX_VALUE );
+        final Set<String> gerados = new HashSet<>();
+
+        for ( int i = 0; i < 300; i++ )
+        {
+            // valores discretos para produzir empates em cada objetivo
+            final double[] fit = { 1.0 / ( 1 + random.nextInt( 6 ) ), random.nextInt( 20 ) / 20.0, 1 };
+
+            // o mock não compara fitness em equals, então repetições são tratadas em outro teste
+            if ( !gerados.add( fit[0] + "|" + fit[1] ) )
+            {
+                continue;
+            }
+
+            final Particula p = criarParticula( fit );
+
+            assertEquals( FronteiraPareto.atualizarParticulasNaoDominadas( lista, p ), arquivo.atualizar( p ) );
+            assertEquals( lista.size(), arquivo.size() );
+            assertTrue( arquivo.containsAll( lista ) );
+        }
+    }
+
+    public void test_arquivo_concorrente_equivalente_ao_sequencial() throws Exception
+    {
+        final Random random = new Random( 9L );
+        final List<Particula> parts = new ArrayList<>();
+
+        for ( int i = 0; i < 2000; i++ )
+        {
+            parts.add( criarParticula( random.nextInt( 50 ) / 50.0, random.nextInt( 50 ) / 50.0, 1 ) );
+        }
+
+        final ArquivoPareto sequencial = new ArquivoPareto( parts.size() );
+
+        for ( Particula p : parts )
+        {
+            sequencial.atualizar( p );
+        }
+
+        // sem atingir o limite, a fronteira não depende da ordem das atualizações
+        final ArquivoParetoConcorrente concorrente = new ArquivoParetoConcorrente( parts.size() );
+        final ArquivoParetoLeitura inicial = concorrente.instantaneo();
+        final Thread[] threads = new Thread[4];
+
+        for ( int t = 0; t < threads.length; t++ )
+        {
+            final int inicio = t;
+
+            threads[t] = new Thread( () -> {
+                for ( int i = inicio; i < parts.size(); i += threads.length )
+                {
+                    concorrente.atualizar( parts.get( i ) );
+                }
+            } );
+            threads[t].start();
+        }
+
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        assertEquals( fitness( sequencial ), fitness( concorrente ) );
+        assertEquals( fitness( sequencial ), fitness( concorrente.instantaneo() ) );
+
+        // instantâneos publicados não são alterados
+        assertEquals( 0, inicial.size() );
+    }
+
+    public void test_mais_proxima_igual_a_busca_linear()
+    {
+        final Random random = new Random( 2L );
+
+        final ArquivoPareto arquivo = new ArquivoPareto( Integer.MAX_VALUE );
+
+        for ( int i = 0; i < 200; i++ )
+        {
+            arquivo.atualizar( criarParticula( random.nextInt( 40 ) / 40.0, random.nextInt( 40 ) / 40.0,
+                                               random.nextInt( 4 ) / 4.0 ) );
+        }
+
+        final List<Particula> lista = new ArrayList<>( arquivo );
+
+        for ( int i = 0; i < 500; i++ )
+        {
+            final Particula p = criarParticula( random.nextInt( 40 ) / 40.0, random.nextInt( 40 ) / 40.0,
+                                                random.nextInt( 4 ) / 4.0 );
+
+            assertSame( Distancia.retornarParticulaMaisProxima( lista, p ), arquivo.maisProxima( p ) );
+        }
+    }
+
+    public void test_ordenacao_nao_dominada()
+    {
+        final List<double[]> fits = new ArrayList<>();
+        fits.add( new double[] { 0.2, 0.3, 0.1 } );
+        fits.add( new double[] { 0.3, 0.4, 0.1 } );
+        fits.add( new double[] { 0.5, 0.1, 0.1 } );
+        fits.add( new double[] { 0.1, 0.1, 0.9 } );
+
+        assertEquals( "[[1, 2], [0], [3]]", FronteiraPareto.ordenarNaoDominadas( fits, 2 ).toString() );
+        assertEquals( "[[1, 2, 3], [0]]", FronteiraPareto.ordenarNaoDominadas( fits, 3 ).toString() );
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.tsprates.pso;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.mockito.Mockito;
+
+import java.util.*;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes da avaliação de fitness em memória.
+ */
+public class FitnessMemoriaTest
+                extends TestCase
+{
+
+    private static final int X = 0;
+
+    private static final int Y = 1;
+
+    public FitnessMemoriaTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( FitnessMemoriaTest.class );
+    }
+
+    private FitnessMemoria criarFitness()
+    {
+        final String[] ids = { "1", "2", "3", "4", "5", "6" };
+
+        final double[][] dados = {
+                        { 1.0, 2.0, 3.0, 4.0, 5.0, Double.NaN },
+                        { 0.5, 2.5, 2.0, 4.0, 1.0, 9.0 }
+        };
+
+        final Map<String, List<String>> classes = new HashMap<>();
+        classes.put( "a", Arrays.asList( "1", "2", "3" ) );
+        classes.put( "b", Arrays.asList( "4", "5", "6" ) );
+
+        final List<List<String>> kpastas = new ArrayList<>();
+        kpastas.add( Arrays.asList( "1", "4" ) );
+        kpastas.add( Arrays.asList( "2", "3", "5", "6" ) );
+
+        final FitnessMemoria fitness = new FitnessMemoria( ids, dados, Arrays.asList( "x", "y" ), classes, 1024 );
+        fitness.setKPastas( kpastas );
+        fitness.setK( 0 );
+
+        return fitness;
+    }
+
+    private Particula criarParticula( String classe, long... conds )
+    {
+        final long[] pos = conds.clone();
+        final int num = Condicao.normalizar( pos, pos.length );
+
+        Particula p = Mockito.mock( Particula.class );
+        when( p.classe() ).thenReturn( classe );
+        when( p.posicao() ).thenReturn( Arrays.copyOf( pos, num ) );
+        when( p.numWhere() ).thenReturn( num );
+        when( p.impressao() ).thenReturn( Condicao.impressao( pos, num ) );
+
+        return p;
+    }
+
+    public void test_avaliacao_com_valor_numerico()
+    {
+        final FitnessMemoria fitness = criarFitness();
+
+        // treinamento: registros 2, 3, 5 e 6; cobertos: 3 e 5
+        final double[] fit =
+                        fitness.calcular( criarParticula( "a", Condicao.criar( X, Condicao.MAIOR_IGUAL, 3.0 ) ), true );
+
+        // tp = 1, fp = 1, fn = 1, tn = 1
+        assertEquals( 1.0, fit[0] );
+        assertEquals( 0.25, fit[1], 1e-12 );
+        assertEquals( 0.5, fit[2], 1e-12 );
+    }
+
+    public void test_avaliacao_entre_atributos_ignora_nulos()
+    {
+        final FitnessMemoria fitness = criarFitness();
+
+        // teste: registros 1 e 4; cobertos: 1 (x > y)
+        final double[] teste =
+                        fitness.calcular( criarParticula( "a", Condicao.criarEntreColunas( X, Condicao.MAIOR, Y ) ),
+                                          false );
+        assertEquals( 1.0, teste[1], 1e-12 );
+        assertEquals( 1.0, teste[2], 1e-12 );
+
+        // treinamento: registro 6 possui x nulo e não é coberto por x != y
+        final double[] treino =
+                        fitness.calcular( criarParticula( "b", Condicao.criarEntreColunas( X, Condicao.DIFERENTE, Y ),
+                                                          Condicao.criar( Y, Condicao.MAIOR, 0.7 ) ), true );
+        assertEquals( 0.5, treino[0] );
+        assertEquals( 0.0, treino[1], 1e-12 );
+        assertEquals( 0.25, treino[2], 1e-12 );
+    }
+
+    public void test_cache_de_condicoes_reaproveita_cobertura()
+    {
+        final FitnessMemoria fitness = criarFitness();
+
+        final double[] a = fitness.calcular( criarParticula( "a", Condicao.criar( X, Condicao.MAIOR_IGUAL, 3.0 ),
+                                                             Condicao.criar( Y, Condicao.MENOR, 5.0 ) ), true );
+        final double[] b =
+                        fitness.calcular( criarParticula( "a", Condicao.criar( X, Condicao.MAIOR_IGUAL, 3.0 ) ), true );
+
+        assertEquals( 0.5, a[0] );
+        assertEquals( 0.25, b[1], 1e-12 );
+        assertTrue( fitness.estatisticas().contains( "acertos=1, falhas=2" ) );
+    }
+
+    public void test_condicao_codificada()
+    {
+        final List<String> colunas = Arrays.asList( "x", "y" );
+
+        final long cond = Condicao.criar( Y, Condicao.MENOR, -2.0005 );
+        assertEquals( Y, Condicao.coluna( cond ) );
+        assertEquals( Condicao.MENOR, Condicao.operador( cond ) );
+        assertFalse( Condicao.entreColunas( cond ) );
+        assertEquals( -2.001, Condicao.valor( cond ), 1e-12 );
+        assertEquals( "y < -2.001", Condicao.formatar( cond, colunas ) );
+
+        final long outra = Condicao.comOperador( Condicao.criarEntreColunas( X, Condicao.IGUAL, Y ), Condicao.MAIOR );
+        assertTrue( Condicao.entreColunas( outra ) );
+        assertEquals( "x > y", Condicao.formatar( outra, colunas ) );
+
+        // a ordem dos códigos segue a coluna, o operador e o valor
+        assertTrue( Condicao.criar( X, Condicao.MAIOR, -1.0 ) < Condicao.criar( X, Condicao.MAIOR, 1.0 ) );
+        assertTrue( Condicao.criar( X, Condicao.IGUAL, 9.0 ) < Condicao.criar( Y, Condicao.MAIOR, -9.0 ) );
+    }
+
+    public void test_avaliacao_incremental_igual_a_completa()
+    {
+        final Random random = new Random( 7L );
+        final int numRegistros = 300;
+
+        final String[] ids = new String[numRegistros];
+        final double[][] dados = new double[2][numRegistros];
+
+        final Map<String, List<String>> classes = new HashMap<>();
+        classes.put( "a", new ArrayList<String>() );
+        classes.put( "b", new ArrayList<String>() );
+
+        final List<List<String>> kpastas = new ArrayList<>();
+        kpastas.add( new ArrayList<String>() );
+        kpastas.add( new ArrayList<String>() );
+
+        for ( int i = 0; i < numRegistros; i++ )
+        {
+            ids[i] = String.valueOf( i );
+            dados[X][i] = random.nextInt( 10 ) / 10.0;
+            dados[Y][i] = random.nextDouble() < 0.05 ? Double.NaN : random.nextInt( 10 ) / 10.0;
+
+            classes.get( random.nextBoolean() ? "a" : "b" ).add( ids[i] );
+            kpastas.get( i % 2 ).add( ids[i] );
+        }
+
+        final FitnessMemoria fitness = new FitnessMemoria( ids, dados, Arrays.asList( "x", "y" ), classes, 1 << 16 );
+        fitness.setKPastas( kpastas );
+        fitness.setK( 0 );
+
+        final Operadores operadores = new Operadores( random, 2, new double[] { 1, 1 }, new double[] { 0, 0 } );
+        final Particula p = new Particula( operadores.criarWhere(), "a", fitness, 10 );
+
+        for ( int i = 0; i < 2000; i++ )
+        {
+            // predominam as alterações de uma condição, com reconstruções ocasionais da posição
+            if ( i % 50 == 49 )
+            {
+                p.setPosicao( operadores.criarWhere(), 1 );
+            }
+            else
+            {
+                operadores.perturbar( p, i % 2 == 0 );
+            }
+
+            p.avaliar();
+
+            final Particula completa = p.clonar();
+            completa.avaliar();
+
+            assertTrue( Arrays.equals( completa.fitness(), p.fitness() ) );
+            assertTrue( Arrays.equals( fitness.calcular( completa, false ), fitness.calcular( p, false ) ) );
+        }
+    }
+
+    public void test_avaliacao_em_lote_igual_a_sequencial()
+    {
+        final FitnessMemoria sequencial = criarFitness();
+        final FitnessMemoria lote = criarFitness();
+        sequencial.setCacheFitness( true );
+        lote.setCacheFitness( true );
+
+        final List<Particula> parts = new ArrayList<>();
+        parts.add( criarParticula( "a", Condicao.criar( X, Condicao.MAIOR_IGUAL, 3.0 ) ) );
+        parts.add( criarParticula( "b", Condicao.criarEntreColunas( X, Condicao.DIFERENTE, Y ) ) );
+        parts.add( criarParticula( "a", Condicao.criar( X, Condicao.MAIOR_IGUAL, 3.0 ) ) );
+
+        final List<double[]> fits = lote.calcular( parts, true );
+
+        for ( int i = 0; i < parts.size(); i++ )
+        {
+            assertTrue( Arrays.equals( sequencial.calcular( parts.get( i ), true ), fits.get( i ) ) );
+        }
+
+        assertEquals( sequencial.numAvaliacao(), lote.numAvaliacao() );
+        assertEquals( sequencial.estatisticas(), lote.estatisticas() );
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.tsprates.pso;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes da avaliação de fitness por consultas SQL.
+ */
+public class FitnessSqlTest
+                extends TestCase
+{
+
+    public FitnessSqlTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( FitnessSqlTest.class );
+    }
+
+    public void test_contagem_agregada_no_banco() throws Exception
+    {
+        final Connection conexao = Mockito.mock( Connection.class );
+        final PreparedStatement ps = Mockito.mock( PreparedStatement.class );
+        final ResultSet rs = Mockito.mock( ResultSet.class );
+
+        when( conexao.createStatement() ).thenReturn( Mockito.mock( Statement.class ) );
+
+        final ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        when( conexao.prepareStatement( sql.capture() ) ).thenReturn( ps );
+        when( ps.executeQuery() ).thenReturn( rs );
+        when( rs.next() ).thenReturn( true );
+        when( rs.getInt( "tp" ) ).thenReturn( 1 );
+        when( rs.getInt( "cobertos" ) ).thenReturn( 2 );
+
+        final FitnessSql fitness = criarFitness( new PoolConexoes( Arrays.asList( conexao ), 16 ) );
+        fitness.setK( 0 );
+
+        final Particula p = criarParticula( "a", "(x >= 3.000)" );
+
+        // treinamento: registros 2, 3, 5 e 6; tp = 1, fp = 1, fn = 1, tn = 1
+        final double[] fit = fitness.calcular( p, true );
+
+        assertEquals( 0.25, fit[1], 1e-12 );
+        assertEquals( 0.5, fit[2], 1e-12 );
+
+        final String tabela = sql.getAllValues().get( 0 ).split( " " )[1];
+
+        assertEquals( "UPDATE " + tabela + " SET pso_pasta = ? WHERE CAST(pso_id AS VARCHAR) = ANY (?)",
+                      sql.getAllValues().get( 0 ) );
+        assertEquals( "SELECT COUNT(*) FILTER (WHERE CAST(categoria AS VARCHAR) = ?) AS tp, COUNT(*) AS cobertos "
+                                      + "FROM dados JOIN " + tabela + " ON " + tabela + ".pso_id = dados.cod WHERE "
+                                      + tabela + ".pso_pasta <> ? AND (x >= 3.000)", sql.getValue() );
+        verify( ps ).setString( 1, "a" );
+        verify( ps ).setInt( 2, 0 );
+    }
+
+    public void test_tabela_temporaria_criada_uma_vez_por_conexao() throws Exception
+    {
+        final Connection conexao = Mockito.mock( Connection.class );
+        final PreparedStatement ps = Mockito.mock( PreparedStatement.class );
+        final ResultSet rs = Mockito.mock( ResultSet.class );
+        final Statement st = Mockito.mock( Statement.class );
+
+        when( conexao.createStatement() ).thenReturn( st );
+
+        final ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        when( conexao.prepareStatement( sql.capture() ) ).thenReturn( ps );
+        when( ps.executeQuery() ).thenReturn( rs );
+        when( rs.next() ).thenReturn( true );
+
+        final PoolConexoes pool = new PoolConexoes( Arrays.asList( conexao ), 16 );
+        final FitnessSql fitness = criarFitness( pool );
+        final Particula p = criarParticula( "a", "(x >= 3.000)" );
+
+        fitness.setK( 0 );
+        fitness.calcular( p, true );
+        fitness.setK( 1 );
+        fitness.calcular( p, true );
+
+        final String tabela = sql.getAllValues().get( 0 ).split( " " )[1];
+
+        // as k-pastas são materializadas uma única vez na conexão; a troca de k-pasta altera apenas o parâmetro
+        verify( st, times( 1 ) ).execute( "CREATE TEMP TABLE " + tabela + " AS SELECT cod AS pso_id, "
+                                                          + "CAST(NULL AS INTEGER) AS pso_pasta FROM dados" );
+        verify( ps, times( 1 ) ).executeBatch();
+        verify( ps ).setInt( 2, 0 );
+        verify( ps ).setInt( 2, 1 );
+
+        // a tabela descartada é removida quando a conexão é obtida novamente
+        fitness.encerrar();
+        pool.obter().close();
+        verify( st ).execute( "DROP TABLE IF EXISTS " + tabela );
+    }
+
+    public void test_lote_contado_em_uma_consulta() throws Exception
+    {
+        final Connection conexao = Mockito.mock( Connection.class );
+        final PreparedStatement ps = Mockito.mock( PreparedStatement.class );
+        final ResultSet rs = Mockito.mock( ResultSet.class );
+
+        when( conexao.createStatement() ).thenReturn( Mockito.mock( Statement.class ) );
+
+        final ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+        when( conexao.prepareStatement( sql.capture() ) ).thenReturn( ps );
+        when( ps.executeQuery() ).thenReturn( rs );
+        when( rs.next() ).thenReturn( true );
+        when( rs.getInt( 1 ) ).thenReturn( 1 );
+        when( rs.getInt( 2 ) ).thenReturn( 2 );
+        when( rs.getInt( 3 ) ).thenReturn( 2 );
+        when( rs.getInt( 4 ) ).thenReturn( 2 );
+
+        final FitnessSql fitness = criarFitness( new PoolConexoes( Arrays.asList( conexao ), 16 ) );
+        fitness.setK( 1 );
+
+        final List<Particula> parts = Arrays.asList( criarParticula( "a", "(x >= 3.000)" ),
+                                                     criarParticula( "b", "(y < 1.000)" ) );
+
+        // teste: registros 2, 3, 5 e 6
+        final List<double[]> fits = fitness.calcular( parts, false );
+
+        assertEquals( 0.25, fits.get( 0 )[1], 1e-12 );
+        assertEquals( 1.0, fits.get( 1 )[1], 1e-12 );
+        assertEquals( 2, fitness.numAvaliacao() );
+
+        final String tabela = sql.getAllValues().get( 0 ).split( " " )[1];
+
+        assertEquals( "SELECT COUNT(*) FILTER (WHERE (x >= 3.000) AND CAST(categoria AS VARCHAR) = ?), "
+                                      + "COUNT(*) FILTER (WHERE (x >= 3.000)), "
+                                      + "COUNT(*) FILTER (WHERE (y < 1.000) AND CAST(categoria AS VARCHAR) = ?), "
+                                      + "COUNT(*) FILTER (WHERE (y < 1.000)) FROM dados JOIN " + tabela + " ON "
+                                      + tabela + ".pso_id = dados.cod WHERE " + tabela + ".pso_pasta = ?",
+                      sql.getValue() );
+        verify( ps ).setString( 1, "a" );
+        verify( ps ).setString( 2, "b" );
+        verify( ps ).setInt( 3, 1 );
+    }
+
+    /**
+     * Cria a avaliação SQL da tabela <code>dados</code> (classes a: 1, 2, 3 e b: 4, 5, 6), com as k-pastas {1, 4} e
+     * {2, 3, 5, 6}.
+     *
+     * @param pool Pool de conexões simuladas.
+     * @return Calculadora de fitness.
+     */
+    private FitnessSql criarFitness( PoolConexoes pool )
+    {
+        final Map<String, List<String>> classes = new HashMap<>();
+        classes.put( "a", Arrays.asList( "1", "2", "3" ) );
+        classes.put( "b", Arrays.asList( "4", "5", "6" ) );
+
+        final List<List<String>> kpastas = new ArrayList<>();
+        kpastas.add( Arrays.asList( "1", "4" ) );
+        kpastas.add( Arrays.asList( "2", "3", "5", "6" ) );
+
+        final FitnessSql fitness = new FitnessSql( pool, "cod", "categoria", "dados", Arrays.asList( "x", "y" ),
+                                                   classes, true, 100 );
+        fitness.setKPastas( kpastas );
+
+        return fitness;
+    }
+
+    private Particula criarParticula( String classe, String where )
+    {
+        final Particula p = Mockito.mock( Particula.class );
+        when( p.classe() ).thenReturn( classe );
+        when( p.whereSql() ).thenReturn( where );
+        when( p.numWhere() ).thenReturn( 1 );
+        return p;
+    }
+}
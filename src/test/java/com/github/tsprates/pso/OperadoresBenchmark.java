@@ -0,0 +1,87 @@
+package com.github.tsprates.pso;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark de pressão sobre o coletor de lixo: mede os bytes alocados pela thread durante os movimentos das
+ * partículas (perturbação e crossover com pbest e gbest), sem a avaliação de fitness. O resultado depende da análise de
+ * escape do compilador JIT; por isso, não faz parte dos testes e é executado manualmente, após
+ * <code>mvn test-compile</code>, com as classes de teste e as dependências no classpath:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:... com.github.tsprates.pso.OperadoresBenchmark
+ * </pre>
+ *
+ * @author thiago
+ */
+public class OperadoresBenchmark
+{
+
+    private static final int NUM_PARTICULAS = 20;
+
+    private static final int NUM_MOVIMENTOS = 200000;
+
+    public static void main( String[] args )
+    {
+        final java.lang.management.ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+
+        if ( !( mxBean instanceof com.sun.management.ThreadMXBean )
+                        || !( (com.sun.management.ThreadMXBean) mxBean ).isThreadAllocatedMemorySupported() )
+        {
+            System.err.println( "A JVM não suporta a medição de memória alocada por thread." );
+            System.exit( 2 );
+        }
+
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) mxBean;
+        threads.setThreadAllocatedMemoryEnabled( true );
+
+        final Random random = new Random( 4L );
+        final Operadores operadores = new Operadores( random, 3, OperadoresTest.preencher( 3, 1 ),
+                                                      OperadoresTest.preencher( 3, 0 ) );
+        final Fitness fitness = OperadoresTest.criarFitness( random, 200, 3 );
+
+        final List<Particula> particulas = new ArrayList<>();
+        final ArquivoPareto gbest = new ArquivoPareto();
+
+        for ( int i = 0; i < NUM_PARTICULAS; i++ )
+        {
+            final Particula p = new Particula( operadores.criarWhere(), "a", fitness, 10 );
+            p.avaliar();
+            p.atualizarPbest();
+            gbest.atualizar( p );
+            particulas.add( p );
+        }
+
+        // aquecimento: compilação JIT e crescimento dos buffers
+        mover( operadores, particulas, gbest, 20000 );
+
+        final long id = Thread.currentThread().threadId();
+
+        final long antes = threads.getThreadAllocatedBytes( id );
+        mover( operadores, particulas, gbest, NUM_MOVIMENTOS );
+        final long alocados = threads.getThreadAllocatedBytes( id ) - antes;
+
+        final double porMovimento = (double) alocados / NUM_MOVIMENTOS;
+
+        System.out.printf( Locale.ROOT, "bytes/movimento: %.4f%n", porMovimento );
+
+        // os movimentos não devem alocar memória
+        System.exit( porMovimento < 1.0 ? 0 : 1 );
+    }
+
+    private static void mover( Operadores operadores, List<Particula> particulas, ArquivoPareto gbest,
+                               int numMovimentos )
+    {
+        for ( int i = 0; i < numMovimentos; i++ )
+        {
+            final Particula p = particulas.get( i % NUM_PARTICULAS );
+
+            operadores.atualizarPosicao( p, gbest, 1.0, 0.5, 0.5 );
+            operadores.perturbar( p, i % 2 == 0 );
+        }
+    }
+}
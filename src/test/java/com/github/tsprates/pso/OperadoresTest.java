@@ -0,0 +1,95 @@
+package com.github.tsprates.pso;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.*;
+
+/**
+ * Testes dos operadores de movimento.
+ *
+ * @see OperadoresBenchmark
+ */
+public class OperadoresTest
+                extends TestCase
+{
+
+    public OperadoresTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( OperadoresTest.class );
+    }
+
+    static FitnessMemoria criarFitness( Random random, int numRegistros, int numCols )
+    {
+        final String[] ids = new String[numRegistros];
+        final double[][] dados = new double[numCols][numRegistros];
+
+        final Map<String, List<String>> classes = new HashMap<>();
+        classes.put( "a", new ArrayList<String>() );
+        classes.put( "b", new ArrayList<String>() );
+
+        final List<List<String>> kpastas = new ArrayList<>();
+        kpastas.add( new ArrayList<String>() );
+        kpastas.add( new ArrayList<String>() );
+
+        for ( int i = 0; i < numRegistros; i++ )
+        {
+            ids[i] = String.valueOf( i );
+
+            for ( int c = 0; c < numCols; c++ )
+            {
+                dados[c][i] = random.nextDouble();
+            }
+
+            classes.get( i % 2 == 0 ? "a" : "b" ).add( ids[i] );
+            kpastas.get( ( i / 2 ) % 2 ).add( ids[i] );
+        }
+
+        final FitnessMemoria fitness = new FitnessMemoria( ids, dados, Arrays.asList( "x", "y", "z" ), classes,
+                                                           1 << 20 );
+        fitness.setKPastas( kpastas );
+        fitness.setK( 0 );
+
+        return fitness;
+    }
+
+    static double[] preencher( int numCols, double valor )
+    {
+        final double[] arr = new double[numCols];
+        Arrays.fill( arr, valor );
+        return arr;
+    }
+
+    public void test_perturbacao_mantem_posicao_normalizada_e_impressao()
+    {
+        final Random random = new Random( 3L );
+        final Operadores operadores = new Operadores( random, 3, preencher( 3, 1 ), preencher( 3, 0 ) );
+        final Fitness fitness = criarFitness( random, 40, 3 );
+
+        final Particula p = new Particula( operadores.criarWhere(), "a", fitness, 10 );
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            operadores.perturbar( p, i % 2 == 0 );
+
+            final long[] pos = Arrays.copyOf( p.posicao(), p.numWhere() );
+
+            assertTrue( pos.length > 0 );
+            assertEquals( pos.length, Condicao.normalizar( pos.clone(), pos.length ) );
+
+            for ( int k = 1; k < pos.length; k++ )
+            {
+                assertTrue( pos[k - 1] < pos[k] );
+            }
+
+            // impressão digital atualizada incrementalmente
+            assertEquals( Condicao.impressao( pos, pos.length ), p.impressao() );
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.github.tsprates.pso;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes do treinamento do enxame, com a base de dados simulada em memória.
+ */
+public class PsoTest
+                extends TestCase
+{
+
+    private static final int NUM_K = 2;
+
+    private static final int MAX_ITER = 205;
+
+    public PsoTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( PsoTest.class );
+    }
+
+    public void test_modo_sincrono_respeita_limite_de_avaliacoes() throws Exception
+    {
+        assertLimiteAvaliacoes( treinar( "sincrono" ) );
+    }
+
+    public void test_modo_assincrono_termina_e_respeita_limite_de_avaliacoes() throws Exception
+    {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try
+        {
+            // o treinamento não pode aguardar indefinidamente os trabalhadores de avaliação
+            assertLimiteAvaliacoes( executor.submit( () -> treinar( "assincrono" ) ).get( 60, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Verifica o número de avaliações de cada k-pasta: exatamente <code>maxiter</code>.
+     *
+     * @param saida Saída do treinamento.
+     */
+    private void assertLimiteAvaliacoes( String saida )
+    {
+        int numPastas = 0;
+
+        for ( String linha : saida.split( "\n" ) )
+        {
+            if ( linha.startsWith( "Avaliações: " ) )
+            {
+                assertEquals( MAX_ITER, Integer.parseInt( linha.substring( "Avaliações: ".length() ).trim() ) );
+                numPastas += 1;
+            }
+        }
+
+        assertEquals( NUM_K, numPastas );
+    }
+
+    /**
+     * Treina o enxame sobre uma base simulada, sem cache de fitness (toda avaliação é contabilizada).
+     *
+     * @param modo Modo de execução.
+     * @return Saída do treinamento.
+     */
+    private String treinar( String modo ) throws Exception
+    {
+        final Properties config = new Properties();
+        config.setProperty( "tabela", "dados" );
+        config.setProperty( "saida", "categoria" );
+        config.setProperty( "id", "cod" );
+        config.setProperty( "npop", "10" );
+        config.setProperty( "maxiter", String.valueOf( MAX_ITER ) );
+        config.setProperty( "w", "0.9" );
+        config.setProperty( "c1", "0.8" );
+        config.setProperty( "c2", "0.8" );
+        config.setProperty( "avaliacao", "memoria" );
+        config.setProperty( "cache.fitness", "false" );
+        config.setProperty( "modo", modo );
+        config.setProperty( "threads", "2" );
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        try ( Pso pso = new Pso( criarBanco( 40 ), config, new Formatador(), NUM_K ) )
+        {
+            pso.carregar( 1L, new PrintStream( buffer, true, "UTF-8" ) );
+        }
+
+        return buffer.toString( "UTF-8" );
+    }
+
+    /**
+     * Simula a tabela <code>dados(cod, x, y, categoria)</code>, respondendo às consultas de carga do PSO e da
+     * avaliação em memória.
+     *
+     * @param numRegistros Número de registros.
+     * @return Pool com uma conexão simulada.
+     */
+    private static PoolConexoes criarBanco( int numRegistros ) throws Exception
+    {
+        final Random random = new Random( 7L );
+        final List<Object[]> registros = new ArrayList<>();
+
+        for ( int i = 1; i <= numRegistros; i++ )
+        {
+            final double x = random.nextInt( 100 ) / 10.0;
+            final double y = random.nextInt( 100 ) / 10.0;
+            registros.add( new Object[] { String.valueOf( i ), x, y, x + y > 10 ? "a" : "b" } );
+        }
+
+        final Connection conexao = Mockito.mock( Connection.class );
+
+        when( conexao.prepareStatement( anyString() ) ).thenAnswer( invocacao -> {
+            final String sql = (String) invocacao.getArguments()[0];
+            final PreparedStatement ps = Mockito.mock( PreparedStatement.class );
+
+            when( ps.executeQuery() ).thenAnswer( i -> consultar( sql, registros ) );
+
+            return ps;
+        } );
+
+        return new PoolConexoes( Arrays.asList( conexao ), 16 );
+    }
+
+    private static ResultSet consultar( String sql, List<Object[]> registros ) throws SQLException
+    {
+        final List<Object[]> linhas = new ArrayList<>();
+
+        if ( sql.endsWith( "LIMIT 1" ) )
+        {
+            return resultado( new String[] { "cod", "x", "y", "categoria" }, linhas );
+        }
+
+        if ( sql.startsWith( "SELECT DISTINCT categoria" ) )
+        {
+            linhas.add( new Object[] { "a" } );
+            linhas.add( new Object[] { "b" } );
+            return resultado( new String[] { "categoria" }, linhas );
+        }
+
+        if ( sql.startsWith( "SELECT categoria, cod AS col_id" ) )
+        {
+            for ( Object[] r : registros )
+            {
+                linhas.add( new Object[] { r[3], r[0] } );
+            }
+
+            return resultado( new String[] { "categoria", "col_id" }, linhas );
+        }
+
+        if ( sql.contains( "max(x)" ) )
+        {
+            linhas.add( new Object[] { 9.9, 0.0, 9.9, 0.0 } );
+            return resultado( new String[] { "max_x", "min_x", "max_y", "min_y" }, linhas );
+        }
+
+        if ( sql.startsWith( "SELECT cod AS col_id, x, y" ) )
+        {
+            for ( Object[] r : registros )
+            {
+                linhas.add( new Object[] { r[0], r[1], r[2] } );
+            }
+
+            return resultado( new String[] { "col_id", "x", "y" }, linhas );
+        }
+
+        throw new AssertionError( "Consulta inesperada: " + sql );
+    }
+
+    /**
+     * Resultado simulado de uma consulta.
+     *
+     * @param rotulos Rótulos das colunas.
+     * @param linhas  Linhas do resultado.
+     * @return Resultado.
+     */
+    private static ResultSet resultado( final String[] rotulos, final List<Object[]> linhas ) throws SQLException
+    {
+        final List<String> colunas = Arrays.asList( rotulos );
+        final int[] cursor = { -1 };
+
+        final ResultSetMetaData metadata = Mockito.mock( ResultSetMetaData.class );
+        when( metadata.getColumnCount() ).thenReturn( rotulos.length );
+        when( metadata.getColumnName( anyInt() ) ).thenAnswer( i -> rotulos[(Integer) i.getArguments()[0] - 1] );
+
+        final ResultSet rs = Mockito.mock( ResultSet.class );
+        when( rs.getMetaData() ).thenReturn( metadata );
+        when( rs.next() ).thenAnswer( i -> ++cursor[0] < linhas.size() );
+        when( rs.getString( anyString() ) ).thenAnswer(
+                        i -> String.valueOf( linhas.get( cursor[0] )[colunas.indexOf( i.getArguments()[0] )] ) );
+        when( rs.getDouble( anyInt() ) ).thenAnswer(
+                        i -> ( (Number) linhas.get( cursor[0] )[(Integer) i.getArguments()[0] - 1] ).doubleValue() );
+
+        return rs;
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.tsprates.pso;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Random;
+
+/**
+ * Testes do conjunto de regras visitadas.
+ */
+public class RegrasVisitadasTest
+                extends TestCase
+{
+
+    public RegrasVisitadasTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( RegrasVisitadasTest.class );
+    }
+
+    public void test_impressao_independe_da_ordem()
+    {
+        final long a = Condicao.criar( 0, Condicao.MAIOR, 1.5 );
+        final long b = Condicao.criarEntreColunas( 1, Condicao.IGUAL, 2 );
+
+        assertEquals( Condicao.impressao( new long[] { a, b }, 2 ), Condicao.impressao( new long[] { b, a }, 2 ) );
+        assertFalse( Condicao.impressao( new long[] { a }, 1 ) == Condicao.impressao( new long[] { a, b }, 2 ) );
+    }
+
+    public void test_hash_detecta_repeticoes_e_respeita_limite()
+    {
+        final RegrasVisitadas visitadas = RegrasVisitadas.criar( "hash", 64 * 1024 );
+        final Random random = new Random( 5L );
+
+        for ( int i = 0; i < 3000; i++ )
+        {
+            final long impressao = random.nextLong();
+
+            assertTrue( visitadas.adicionar( impressao ) );
+            assertFalse( visitadas.adicionar( impressao ) );
+        }
+
+        assertTrue( visitadas.adicionar( 0L ) );
+        assertFalse( visitadas.adicionar( 0L ) );
+
+        for ( int i = 0; i < 100000; i++ )
+        {
+            visitadas.adicionar( random.nextLong() );
+        }
+
+        assertTrue( visitadas.memoria() <= 64 * 1024 );
+        assertTrue( visitadas.toString().contains( "filtro=hash" ) );
+    }
+
+    public void test_bloom_sem_falsos_negativos()
+    {
+        final RegrasVisitadas visitadas = RegrasVisitadas.criar( "bloom", 16 * 1024 );
+        final Random random = new Random( 6L );
+
+        final long[] impressoes = new long[5000];
+        int falsosPositivos = 0;
+
+        for ( int i = 0; i < impressoes.length; i++ )
+        {
+            impressoes[i] = random.nextLong();
+
+            if ( !visitadas.adicionar( impressoes[i] ) )
+            {
+                falsosPositivos += 1;
+            }
+        }
+
+        for ( long impressao : impressoes )
+        {
+            assertFalse( visitadas.adicionar( impressao ) );
+        }
+
+        // 131072 bits para 5000 regras: taxa estimada da ordem de 1e-4
+        assertTrue( visitadas.taxaFalsosPositivos() < 1e-3 );
+        assertTrue( falsosPositivos < 10 );
+        assertEquals( 16 * 1024, visitadas.memoria() );
+    }
+
+    public void test_filtro_invalido()
+    {
+        try
+        {
+            RegrasVisitadas.criar( "lista", 1024 );
+            fail();
+        }
+        catch ( RuntimeException e )
+        {
+            assertTrue( e.getMessage().contains( "lista" ) );
+        }
+    }
+}
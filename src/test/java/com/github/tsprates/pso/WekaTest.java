@@ -0,0 +1,132 @@
+package com.github.tsprates.pso;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.FastVector;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.*;
+
+/**
+ * Testes das partições de treinamento e teste do WEKA.
+ */
+public class WekaTest
+                extends TestCase
+{
+
+    private static final String[] CLASSES = { "a", "b", "c" };
+
+    public WekaTest( String testName )
+    {
+        super( testName );
+    }
+
+    public static Test suite()
+    {
+        return new TestSuite( WekaTest.class );
+    }
+
+    /**
+     * As partições em memória devem conter os mesmos registros, na mesma ordem dentro de cada classe, das antigas
+     * consultas <code>IN</code> / <code>NOT IN</code> por k-pasta ordenadas pela classe, quando o banco mantém a
+     * mesma ordem dos empates em todas as consultas.
+     */
+    public void test_particoes_reproduzem_consultas_por_kpasta()
+    {
+        final Random random = new Random( 5L );
+
+        // IDs numéricos com zeros à direita, que devem coincidir com os IDs textuais das k-pastas
+        final double[] ids = { 7, 10, 3, 100, 1, 20, 9, 2, 30, 5, 1000, 4, 8, 6, 11 };
+
+        final Instances origem = criarTabela( ids.length );
+
+        for ( int i = 0; i < ids.length; i++ )
+        {
+            // x identifica o registro após a remoção do ID
+            origem.add( new Instance( 1.0, new double[] { ids[i], i, random.nextInt( CLASSES.length ) } ) );
+        }
+
+        final Properties config = new Properties();
+        config.setProperty( "saida", "categoria" );
+        config.setProperty( "id", "cod" );
+
+        final Weka weka = new Weka( config, ordenarPorClasse( origem, null, false ) );
+
+        final List<String> kpasta = Arrays.asList( "10", "100", "3", "6", "1000" );
+        final Set<Double> idsTeste = new HashSet<>( Arrays.asList( 10.0, 100.0, 3.0, 6.0, 1000.0 ) );
+
+        final Instances[] particao = weka.particionar( kpasta );
+
+        assertMesmosRegistros( ordenarPorClasse( origem, idsTeste, false ), particao[0] );
+        assertMesmosRegistros( ordenarPorClasse( origem, idsTeste, true ), particao[1] );
+    }
+
+    private static Instances criarTabela( int capacidade )
+    {
+        final FastVector valoresClasse = new FastVector();
+
+        for ( String cl : CLASSES )
+        {
+            valoresClasse.addElement( cl );
+        }
+
+        final FastVector atributos = new FastVector();
+        atributos.addElement( new Attribute( "cod" ) );
+        atributos.addElement( new Attribute( "x" ) );
+        atributos.addElement( new Attribute( "categoria", valoresClasse ) );
+
+        final Instances tabela = new Instances( "dados", atributos, capacidade );
+        tabela.setClassIndex( 2 );
+
+        return tabela;
+    }
+
+    /**
+     * Simula uma consulta <code>ORDER BY categoria</code> cujos empates mantêm a ordem da tabela de origem.
+     *
+     * @param origem Tabela de origem.
+     * @param ids    IDs filtrados, ou <code>null</code> para todos os registros.
+     * @param dentro Se verdadeiro, seleciona os IDs (<code>IN</code>); senão, os demais (<code>NOT IN</code>).
+     * @return Registros selecionados, ordenados pela classe.
+     */
+    private static Instances ordenarPorClasse( Instances origem, Set<Double> ids, boolean dentro )
+    {
+        final Instances resultado = criarTabela( origem.numInstances() );
+
+        for ( int cl = 0; cl < CLASSES.length; cl++ )
+        {
+            for ( int i = 0, size = origem.numInstances(); i < size; i++ )
+            {
+                final Instance r = origem.instance( i );
+
+                if ( (int) r.classValue() == cl && ( ids == null || ids.contains( r.value( 0 ) ) == dentro ) )
+                {
+                    resultado.add( r );
+                }
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Compara os registros (atributo x e classe) na mesma ordem.
+     *
+     * @param esperado Registros esperados, com o atributo ID.
+     * @param obtido   Registros da partição, sem o atributo ID.
+     */
+    private static void assertMesmosRegistros( Instances esperado, Instances obtido )
+    {
+        assertEquals( esperado.numInstances(), obtido.numInstances() );
+        assertEquals( 2, obtido.numAttributes() );
+
+        for ( int i = 0, size = esperado.numInstances(); i < size; i++ )
+        {
+            assertEquals( esperado.instance( i ).value( 1 ), obtido.instance( i ).value( 0 ), 0.0 );
+            assertEquals( esperado.instance( i ).classValue(), obtido.instance( i ).classValue(), 0.0 );
+        }
+    }
+}